@@ -0,0 +1,26 @@
+package frc.robot.lib.components;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CRTSolverBenchmark {
+
+    private final CRTSolver solver = new CRTSolver(37, 41, 200);
+    private double rotations = 0;
+
+    @Benchmark
+    public double solve() {
+        rotations += 0.0137;
+        double teeth = rotations * 200;
+        return solver.solve(teeth / 37, teeth / 41);
+    }
+}
@@ -0,0 +1,94 @@
+package frc.robot.lib.controllers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.controller.ProfiledPIDController;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.math.trajectory.TrapezoidProfile.Constraints;
+import frc.robot.lib.util.FFConfiguration;
+import frc.robot.lib.util.PIDConfiguration;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ControllerBenchmark {
+
+    @Param({"1", "2", "4", "8", "16", "32", "64"})
+    private int axes;
+
+    private final PIDConfiguration pidConfig = new PIDConfiguration(4.0, 0.1, 0.05, 2.0, 6.0);
+    private final FFConfiguration ffConfig = new FFConfiguration(0.1, 1.2, 0.05);
+
+    private PIDFFController[] controllers;
+    private ProfiledPIDController[] doubleSteppedControllers;
+    private SimpleMotorFeedforward[] doubleSteppedFeedforwards;
+    private ControllerBank bank;
+    private double output = 0;
+    private int cycle = 0;
+
+    @Setup
+    public void setup() {
+        controllers = new PIDFFController[axes];
+        doubleSteppedControllers = new ProfiledPIDController[axes];
+        doubleSteppedFeedforwards = new SimpleMotorFeedforward[axes];
+        bank = new ControllerBank(0.02);
+        for (int i = 0; i < axes; i++) {
+            controllers[i] = new PIDFFController(pidConfig, ffConfig);
+            doubleSteppedControllers[i] = new ProfiledPIDController(pidConfig.kP, pidConfig.kI, pidConfig.kD,
+                new Constraints(pidConfig.maxVel, pidConfig.maxAcc));
+            doubleSteppedFeedforwards[i] = new SimpleMotorFeedforward(ffConfig.kS, ffConfig.kV, ffConfig.kA);
+            int axis = bank.registerAxis(pidConfig, 0.0, value -> output = value);
+            bank.setGoal(axis, 1.0 + i);
+        }
+    }
+
+    /** Goal that flips every few hundred cycles so the profiles keep moving */
+    private double goal(int axis) {
+        return ((cycle >> 8) & 1) == 0 ? 1.0 + axis : -1.0 - axis;
+    }
+
+    @Benchmark
+    public double pidffControllers() {
+        cycle++;
+        double sum = 0;
+        for (int i = 0; i < axes; i++) {
+            sum += controllers[i].calculate(0.5, goal(i));
+        }
+        return sum;
+    }
+
+    /**
+     * What PIDFFController.calculate used to do: step the profile and PID twice per call and feed the second PID
+     * output to the feedforward as a velocity. Kept as the baseline for {@link #pidffControllers()}.
+     */
+    @Benchmark
+    public double doubleSteppedControllers() {
+        cycle++;
+        double sum = 0;
+        for (int i = 0; i < axes; i++) {
+            ProfiledPIDController pid = doubleSteppedControllers[i];
+            sum += pid.calculate(0.5) + doubleSteppedFeedforwards[i].calculate(pid.calculate(0.5, goal(i)));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double controllerBank() {
+        cycle++;
+        for (int i = 0; i < axes; i++) {
+            bank.setMeasurement(i, 0.5);
+            bank.setGoal(i, goal(i));
+        }
+        bank.step();
+        return output;
+    }
+}
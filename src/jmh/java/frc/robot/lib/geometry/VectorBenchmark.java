@@ -0,0 +1,36 @@
+package frc.robot.lib.geometry;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VectorBenchmark {
+
+    private final Rotation2d rotation = Rotation2d.fromDegrees(37);
+    private final Vector2d offset = new Vector2d(0.25, -0.5);
+    private final MutableVector2d mutableOffset = new MutableVector2d(0.25, -0.5);
+    private final MutableVector2d mutableResult = new MutableVector2d();
+
+    @Benchmark
+    public double vector2dChain() {
+        Vector2d vector = new Vector2d(1.0, 2.0).rotated(rotation);
+        vector.add(offset);
+        vector.scale(0.5);
+        return vector.getMagnitude();
+    }
+
+    @Benchmark
+    public double mutableVector2dChain() {
+        return mutableResult.set(1.0, 2.0).rotate(rotation).add(mutableOffset).scale(0.5).getMagnitude();
+    }
+}
@@ -0,0 +1,62 @@
+package frc.robot.lib.geometry;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VectorFieldBenchmark {
+
+    private VectorField2d composed;
+    private VectorField2d composedDivergence;
+    private DifferentiableVectorField2d differentiable;
+    private SampledVectorField2d sampled;
+    private final Jacobian2d jacobian = new Jacobian2d();
+    private final MutableVector2d result = new MutableVector2d();
+
+    @Setup
+    public void setup() {
+        // Pull towards a goal and push away from an obstacle, the usual shape of a drive field
+        composed = VectorField2d.addFields(
+            VectorField2d.getFieldToPoint(8.0, 4.0),
+            VectorField2d.scaleField(VectorField2d.invertField(VectorField2d.getFieldToPoint(5.0, 3.0)), 0.3));
+        composedDivergence = VectorField2d.getDivergence(composed);
+        differentiable = DifferentiableVectorField2d.addFields(
+            DifferentiableVectorField2d.getFieldToPoint(8.0, 4.0),
+            DifferentiableVectorField2d.scaleField(DifferentiableVectorField2d.invertField(DifferentiableVectorField2d.getFieldToPoint(5.0, 3.0)), 0.3));
+        sampled = composed.getSampledField(0.0, 0.0, 16.5, 8.1, 0.05, false);
+    }
+
+    @Benchmark
+    public Vector2d composedVector() {
+        return composed.computeVector(3.21, 1.73);
+    }
+
+    @Benchmark
+    public Vector2d composedDivergence() {
+        return composedDivergence.computeVector(3.21, 1.73);
+    }
+
+    @Benchmark
+    public Jacobian2d differentiableJacobian() {
+        return differentiable.computeJacobian(3.21, 1.73, jacobian);
+    }
+
+    @Benchmark
+    public MutableVector2d sampledVector() {
+        return sampled.computeVector(3.21, 1.73, result);
+    }
+
+    @Benchmark
+    public double sampledDivergence() {
+        return sampled.getDivergence(3.21, 1.73);
+    }
+}
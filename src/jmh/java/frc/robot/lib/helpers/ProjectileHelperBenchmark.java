@@ -0,0 +1,99 @@
+package frc.robot.lib.helpers;
+
+import static edu.wpi.first.units.Units.Meters;
+import static edu.wpi.first.units.Units.Seconds;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.units.measure.Distance;
+import edu.wpi.first.units.measure.Time;
+import frc.robot.lib.geometry.Vector2d;
+import frc.robot.lib.helpers.ProjectileHelper.ShotSolution;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProjectileHelperBenchmark {
+
+    // Grid of shots solved by solveGrid: distances from 1 to 8 m, robot velocities from -4 to 4 m/s on each axis
+    private static final double[] GRID_DISTANCES = {1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0};
+    private static final double[] GRID_VELOCITIES = {-4.0, -3.0, -2.0, -1.0, 0.0, 1.0, 2.0, 3.0, 4.0};
+
+    /** Number of shots solved per call of solveGrid, to turn its time per call into calls per second */
+    public static final int GRID_SHOTS = GRID_DISTANCES.length * GRID_VELOCITIES.length * GRID_VELOCITIES.length;
+
+    private final DoubleUnaryOperator timeOfFlight = distance -> 0.4 + 0.12 * distance;
+    private final DoubleUnaryOperator curvedTimeOfFlight = distance -> 0.35 + 0.1 * distance + 0.012 * distance * distance;
+    private final Function<Distance, Time> timeOfFlightMeasure = distance -> Seconds.of(0.4 + 0.12 * distance.in(Meters));
+    private final ShotSolution solution = new ShotSolution();
+
+    private final Distance distance = Meters.of(4.5);
+    private final Rotation2d rotation = Rotation2d.fromDegrees(30);
+    private final Vector2d velocity = new Vector2d(1.5, -0.8);
+
+    @Benchmark
+    public ShotSolution solveMovingShot() {
+        return ProjectileHelper.solveMovingShot(4.5, 0.0, 1.5, -0.8, timeOfFlight,
+            ProjectileHelper.DEFAULT_TIME_TOLERANCE_SECONDS, ProjectileHelper.DEFAULT_MAX_ITERATIONS, solution);
+    }
+
+    /**
+     * Solves every shot of the grid with a curved time of flight model. The convergence counters report, per
+     * iteration of the run, how many solves converged, how many did not and how many time of flight evaluations
+     * they used in total.
+     */
+    @Benchmark
+    public int solveGrid(Convergence convergence) {
+        int converged = 0;
+        for (double distance : GRID_DISTANCES) {
+            for (double velocityX : GRID_VELOCITIES) {
+                for (double velocityY : GRID_VELOCITIES) {
+                    ProjectileHelper.solveMovingShot(distance, 0.0, velocityX, velocityY, curvedTimeOfFlight,
+                        ProjectileHelper.DEFAULT_TIME_TOLERANCE_SECONDS, ProjectileHelper.DEFAULT_MAX_ITERATIONS, solution);
+                    convergence.evaluations += solution.getIterations();
+                    if (solution.isConverged()) {
+                        convergence.converged++;
+                        converged++;
+                    } else {
+                        convergence.failed++;
+                    }
+                }
+            }
+        }
+        return converged;
+    }
+
+    @Benchmark
+    public Vector2d getShotOffsetVector() {
+        return ProjectileHelper.getShotOffsetVector(distance, rotation, timeOfFlightMeasure, velocity);
+    }
+
+    /** Convergence of the grid solves, reported next to the timing */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Convergence {
+        public long converged;
+        public long failed;
+        public long evaluations;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            converged = 0;
+            failed = 0;
+            evaluations = 0;
+        }
+    }
+}
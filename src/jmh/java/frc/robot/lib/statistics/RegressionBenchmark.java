@@ -0,0 +1,89 @@
+package frc.robot.lib.statistics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import frc.robot.lib.statistics.Regression.RegressionType;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RegressionBenchmark {
+
+    @Param({"16", "256"})
+    private int points;
+
+    private double[] xData;
+    private double[] yData;
+    private Regression linear;
+    private PolynomialRegression cubic;
+    private double x = 0;
+
+    @Setup
+    public void setup() {
+        xData = new double[points];
+        yData = new double[points];
+        for (int i = 0; i < points; i++) {
+            xData[i] = 1.0 + i * 0.05;
+            yData[i] = 2.0 + 0.5 * xData[i] - 0.1 * xData[i] * xData[i] + 0.01 * Math.sin(i);
+        }
+        linear = new Regression(xData, yData, RegressionType.LINEAR);
+        cubic = new PolynomialRegression(xData, yData, 3);
+    }
+
+    @Benchmark
+    public double linearAddPoint() {
+        x += 0.001;
+        linear.addPoint(x, 2.0 * x);
+        return linear.getSlope();
+    }
+
+    @Benchmark
+    public Regression linearFit() {
+        return new Regression(xData, yData, RegressionType.LINEAR);
+    }
+
+    /** The sum of products closed form Regression used before, kept as the reference for fit cost */
+    @Benchmark
+    public double closedFormLinearFit() {
+        int n = xData.length;
+        double sumX = 0, sumY = 0, sumXY = 0, sumX2 = 0;
+        for (int i = 0; i < n; i++) {
+            sumX += xData[i];
+            sumY += yData[i];
+            sumXY += xData[i] * yData[i];
+            sumX2 += xData[i] * xData[i];
+        }
+        double slope = (n * sumXY - sumX * sumY) / (n * sumX2 - sumX * sumX);
+        double intercept = (sumY - slope * sumX) / n;
+        return slope + intercept;
+    }
+
+    @Benchmark
+    public PolynomialRegression linearPolynomialFit() {
+        return new PolynomialRegression(xData, yData, 1);
+    }
+
+    @Benchmark
+    public double linearPredict() {
+        return linear.predict(3.7);
+    }
+
+    @Benchmark
+    public PolynomialRegression cubicFit() {
+        return new PolynomialRegression(xData, yData, 3);
+    }
+
+    @Benchmark
+    public double cubicPredict() {
+        return cubic.predict(3.7);
+    }
+}
@@ -5,18 +5,83 @@
 package frc.robot;
 
 import org.littletonrobotics.junction.LoggedRobot;
+import org.littletonrobotics.junction.Logger;
 
 import edu.wpi.first.hal.DriverStationJNI;
-import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.hal.NotifierJNI;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.internal.DriverStationModeThread;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.lib.controllers.ControllerBank;
+import frc.robot.lib.subsystem.CanBusBudget;
+import frc.robot.lib.util.GenericState;
 
 /**
  * This class is run automatically. If you change the name of this class or the package after
  * creating this project, you must also update the Main.java file in the project.
+ *
+ * <p>The main loop runs on a fixed period aligned to the FPGA clock. Every cycle refreshes the
+ * driver station data, runs the mode hooks on mode changes, runs the command scheduler, steps the
+ * controller banks and then logs, and the time spent in each phase is published along with a loop time histogram.
  */
 public class Robot extends LoggedRobot {
-  public Robot() {}
+  /** Default main loop period in seconds */
+  public static final double kDefaultLoopPeriod = 0.02;
+
+  /** Width of one loop time histogram bucket in microseconds */
+  private static final long kHistogramBucketMicros = 500;
+
+  /** Number of loop time histogram buckets, the last one counts every longer cycle */
+  private static final int kHistogramBuckets = 81;
+
+  /** What the loop does when a cycle runs past the start of the next one */
+  public enum OverrunPolicy {
+    /** Drop the missed ticks and wait for the next tick on the original schedule */
+    SKIP,
+    /** Run the missed ticks back to back, up to the catch up limit, then skip the rest */
+    CATCH_UP,
+    /** Start a new schedule one period after the overrunning cycle ended */
+    RESTART
+  }
+
+  private final long m_periodMicros;
+  private OverrunPolicy m_overrunPolicy = OverrunPolicy.SKIP;
+  private int m_maxCatchUpTicks = 2;
+
+  private volatile boolean m_exit;
+  private int m_notifier;
+
+  private Mode m_lastMode = null;
+
+  // Loop statistics, all times in microseconds
+  private final long[] m_loopTimeHistogram = new long[kHistogramBuckets];
+  private long m_dsRefreshMicros;
+  private long m_matchStateMicros;
+  private long m_userCodeMicros;
+  private long m_schedulerMicros;
+  private long m_loggingMicros;
+  private long m_loopMicros;
+  private long m_startLatenessMicros;
+  private long m_overruns = 0;
+  private long m_missedTicks = 0;
+
+  public Robot() {
+    this(kDefaultLoopPeriod);
+  }
+
+  /**
+   * Creates a robot running its main loop at a custom period.
+   *
+   * @param period main loop period in seconds
+   */
+  public Robot(double period) {
+    super(period);
+    if (!(period > 0)) {
+      throw new IllegalArgumentException("Loop period must be positive, got " + period);
+    }
+    m_periodMicros = Math.round(period * 1e6);
+  }
 
   public void disabled() {}
 
@@ -26,73 +91,193 @@ public class Robot extends LoggedRobot {
 
   public void test() {}
 
-  private volatile boolean m_exit;
+  /**
+   * Sets what the loop does when a cycle runs past the start of the next one.
+   *
+   * @param policy the overrun policy
+   * @param maxCatchUpTicks most ticks to run back to back with {@link OverrunPolicy#CATCH_UP}
+   */
+  public void setOverrunPolicy(OverrunPolicy policy, int maxCatchUpTicks) {
+    if (maxCatchUpTicks < 0) {
+      throw new IllegalArgumentException("Catch up ticks must not be negative, got " + maxCatchUpTicks);
+    }
+    m_overrunPolicy = policy;
+    m_maxCatchUpTicks = maxCatchUpTicks;
+  }
 
   @Override
   public void startCompetition() {
     DriverStationModeThread modeThread = new DriverStationModeThread();
 
-    int event = WPIUtilJNI.createEvent(false, false);
+    m_notifier = NotifierJNI.initializeNotifier();
+    NotifierJNI.setNotifierName(m_notifier, "Robot");
 
-    DriverStation.provideRefreshedDataEventHandle(event);
+    // Every subsystem has declared the signals it reads by now, turn the rest off
+    CanBusBudget.getInstance().optimize();
 
     // Tell the DS that the robot is ready to be enabled
     DriverStationJNI.observeUserProgramStarting();
 
+    long nextTick = RobotController.getFPGATime() + m_periodMicros;
+    int catchUpTicks = 0;
+
     while (!Thread.currentThread().isInterrupted() && !m_exit) {
-      if (isDisabled()) {
-        modeThread.inDisabled(true);
-        disabled();
-        modeThread.inDisabled(false);
-        while (isDisabled()) {
-          try {
-            WPIUtilJNI.waitForObject(event);
-          } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-          }
-        }
-      } else if (isAutonomous()) {
-        modeThread.inAutonomous(true);
-        autonomous();
-        modeThread.inAutonomous(false);
-        while (isAutonomousEnabled()) {
-          try {
-            WPIUtilJNI.waitForObject(event);
-          } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-          }
-        }
-      } else if (isTest()) {
-        modeThread.inTest(true);
-        test();
-        modeThread.inTest(false);
-        while (isTest() && isEnabled()) {
-          try {
-            WPIUtilJNI.waitForObject(event);
-          } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-          }
+      NotifierJNI.updateNotifierAlarm(m_notifier, nextTick);
+      if (NotifierJNI.waitForNotifierAlarm(m_notifier) == 0) {
+        break;
+      }
+
+      long cycleStart = RobotController.getFPGATime();
+      m_startLatenessMicros = cycleStart - nextTick;
+
+      DriverStation.refreshData();
+      long dsRefreshEnd = RobotController.getFPGATime();
+
+      Logger.periodicBeforeUser();
+      long loggingBeforeEnd = RobotController.getFPGATime();
+
+      // After AdvantageKit has processed this cycle's DS data, so replays see the same match state
+      GenericState.refresh();
+      long matchStateEnd = RobotController.getFPGATime();
+
+      runModeChanges(modeThread);
+      long userCodeEnd = RobotController.getFPGATime();
+
+      CommandScheduler.getInstance().run();
+      ControllerBank.stepAll();
+      long schedulerEnd = RobotController.getFPGATime();
+
+      m_dsRefreshMicros = dsRefreshEnd - cycleStart;
+      m_matchStateMicros = matchStateEnd - loggingBeforeEnd;
+      m_userCodeMicros = userCodeEnd - matchStateEnd;
+      m_schedulerMicros = schedulerEnd - userCodeEnd;
+
+      CanBusBudget.getInstance().log();
+      recordLoopStatistics();
+      Logger.periodicAfterUser(schedulerEnd - loggingBeforeEnd, loggingBeforeEnd - dsRefreshEnd);
+      long cycleEnd = RobotController.getFPGATime();
+
+      // Statistics are recorded before this cycle's logging ends, so the logging time published is the previous cycle's
+      m_loggingMicros = (loggingBeforeEnd - dsRefreshEnd) + (cycleEnd - schedulerEnd);
+      m_loopMicros = cycleEnd - cycleStart;
+      m_loopTimeHistogram[(int) Math.min(m_loopMicros / kHistogramBucketMicros, kHistogramBuckets - 1)]++;
+
+      nextTick += m_periodMicros;
+      if (cycleEnd > nextTick) {
+        m_overruns++;
+        long behind = (cycleEnd - nextTick) / m_periodMicros + 1;
+        switch (m_overrunPolicy) {
+          case CATCH_UP:
+            if (catchUpTicks < m_maxCatchUpTicks) {
+              // Leave nextTick in the past so the alarm fires immediately
+              catchUpTicks++;
+              break;
+            }
+            m_missedTicks += behind;
+            nextTick += behind * m_periodMicros;
+            catchUpTicks = 0;
+            break;
+          case RESTART:
+            m_missedTicks += behind;
+            nextTick = cycleEnd + m_periodMicros;
+            break;
+          case SKIP:
+          default:
+            m_missedTicks += behind;
+            nextTick += behind * m_periodMicros;
+            break;
         }
       } else {
-        modeThread.inTeleop(true);
-        teleop();
-        modeThread.inTeleop(false);
-        while (isTeleopEnabled()) {
-          try {
-            WPIUtilJNI.waitForObject(event);
-          } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-          }
-        }
+        catchUpTicks = 0;
       }
     }
 
-    DriverStation.removeRefreshedDataEventHandle(event);
+    setModeActive(modeThread, m_lastMode, false);
+    NotifierJNI.stopNotifier(m_notifier);
+    NotifierJNI.cleanNotifier(m_notifier);
     modeThread.close();
   }
 
   @Override
   public void endCompetition() {
     m_exit = true;
+    NotifierJNI.stopNotifier(m_notifier);
+  }
+
+  /** Runs the mode hook when the robot changes mode and tells the DS which mode the code is in */
+  private void runModeChanges(DriverStationModeThread modeThread) {
+    Mode mode;
+    if (isDisabled()) {
+      mode = Mode.DISABLED;
+    } else if (isAutonomous()) {
+      mode = Mode.AUTONOMOUS;
+    } else if (isTest()) {
+      mode = Mode.TEST;
+    } else {
+      mode = Mode.TELEOP;
+    }
+
+    if (mode == m_lastMode) {
+      return;
+    }
+
+    setModeActive(modeThread, m_lastMode, false);
+    setModeActive(modeThread, mode, true);
+    m_lastMode = mode;
+
+    switch (mode) {
+      case DISABLED:
+        disabled();
+        break;
+      case AUTONOMOUS:
+        autonomous();
+        break;
+      case TEST:
+        test();
+        break;
+      case TELEOP:
+        teleop();
+        break;
+    }
+  }
+
+  private static void setModeActive(DriverStationModeThread modeThread, Mode mode, boolean active) {
+    if (mode == null) {
+      return;
+    }
+    switch (mode) {
+      case DISABLED:
+        modeThread.inDisabled(active);
+        break;
+      case AUTONOMOUS:
+        modeThread.inAutonomous(active);
+        break;
+      case TEST:
+        modeThread.inTest(active);
+        break;
+      case TELEOP:
+        modeThread.inTeleop(active);
+        break;
+    }
+  }
+
+  private void recordLoopStatistics() {
+    Logger.recordOutput("Loop/DS Refresh Micros", m_dsRefreshMicros);
+    Logger.recordOutput("Loop/Match State Micros", m_matchStateMicros);
+    Logger.recordOutput("Loop/User Code Micros", m_userCodeMicros);
+    Logger.recordOutput("Loop/Scheduler Micros", m_schedulerMicros);
+    Logger.recordOutput("Loop/Logging Micros", m_loggingMicros);
+    Logger.recordOutput("Loop/Loop Micros", m_loopMicros);
+    Logger.recordOutput("Loop/Start Lateness Micros", m_startLatenessMicros);
+    Logger.recordOutput("Loop/Overruns", m_overruns);
+    Logger.recordOutput("Loop/Missed Ticks", m_missedTicks);
+    Logger.recordOutput("Loop/Histogram", m_loopTimeHistogram);
+  }
+
+  private enum Mode {
+    DISABLED,
+    AUTONOMOUS,
+    TEST,
+    TELEOP
   }
 }
@@ -2,27 +2,72 @@ package frc.robot.lib.components;
 
 import static edu.wpi.first.units.Units.Rotations;
 
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.Utils;
 import com.ctre.phoenix6.hardware.CANcoder;
 
 import edu.wpi.first.units.measure.Angle;
+import edu.wpi.first.units.measure.AngularVelocity;
 
+/**
+ * Finds the absolute position of a gear from two CANcoders on meshing gears with coprime tooth counts, using the
+ * Chinese Remainder Theorem. Each encoder gives the position of the measured gear modulo its own tooth count, and
+ * the combination of both is unique over {@code aTeeth * bTeeth} teeth of travel.
+ *
+ * <p>The solve itself is done by a {@link CRTSolver}, which is a single table lookup per read and checks how well
+ * the two encoders agree against a configurable tolerance.
+ *
+ * <p>Both encoders are extrapolated by their velocities to a common time before solving, so a moving mechanism
+ * does not make the residues disagree. With tracking enabled the solve only seeds a continuous position, which is
+ * then followed with encoder A's relative position and re-checked against the solve every few reads.
+ */
 public class CRTEncoder {
 
+    /** Default allowed mismatch between the two encoders, in teeth of the measured gear */
+    public static final double DEFAULT_TOLERANCE_TEETH = CRTSolver.DEFAULT_TOLERANCE_TEETH;
+
+    /** Default number of tracked reads between checks against the absolute solve */
+    public static final int DEFAULT_REVALIDATION_PERIOD = 50;
+
     private final CANcoder encoderA;
     private final CANcoder encoderB;
     private final int aTeeth;
-    private final int bTeeth;
     private final int messuredGearTeeth;
+    private final CRTSolver solver;
+
+    private final StatusSignal<Angle> positionA;
+    private final StatusSignal<Angle> positionB;
+    private final StatusSignal<AngularVelocity> velocityA;
+    private final StatusSignal<AngularVelocity> velocityB;
+    private final StatusSignal<Angle> relativePositionA;
+    private final BaseStatusSignal[] signals;
+    private final BaseStatusSignal[] trackingSignals;
 
     private Angle zeroPosition = Rotations.of(0);
 
+    private boolean trackingEnabled = false;
+    private boolean trackingSeeded = false;
+    private int revalidationPeriod = DEFAULT_REVALIDATION_PERIOD;
+    private int readsSinceSolve = 0;
+    /** Measured gear rotations minus encoder A's scaled relative position */
+    private double trackingOffsetRotations = 0;
+
     public CRTEncoder(int encoderAId, int encoderBId, int aTeeth, int bTeeth, int messuredGearTeeth) {
+        this.solver = new CRTSolver(aTeeth, bTeeth, messuredGearTeeth);
         this.aTeeth = aTeeth;
-        this.bTeeth = bTeeth;
         this.messuredGearTeeth = messuredGearTeeth;
 
         encoderA = new CANcoder(encoderAId);
         encoderB = new CANcoder(encoderBId);
+
+        positionA = encoderA.getAbsolutePosition();
+        positionB = encoderB.getAbsolutePosition();
+        velocityA = encoderA.getVelocity();
+        velocityB = encoderB.getVelocity();
+        relativePositionA = encoderA.getPosition();
+        signals = new BaseStatusSignal[] {positionA, positionB, velocityA, velocityB, relativePositionA};
+        trackingSignals = new BaseStatusSignal[] {relativePositionA, velocityA};
     }
 
     public CRTEncoder(int encoderAId, int encoderBId, int aTeeth, int bTeeth, int messuredGearTeeth, Angle zeroPosition) {
@@ -35,18 +80,135 @@ public class CRTEncoder {
     }
 
     public Angle getNonZeroMeasuredGearAngle () {
-        double remainderA = encoderA.getAbsolutePosition().getValue().in(Rotations) * aTeeth;
-        double remainderB = encoderB.getAbsolutePosition().getValue().in(Rotations) * bTeeth;
-
-        for (int i = 0; i <= aTeeth; i++) {
-            double hypothosisTeeth = aTeeth*i + remainderA;
-            double remainderBCheck = hypothosisTeeth % bTeeth;
-            if (Math.abs(remainderBCheck - remainderB) < 0.01) {
-                double totalTeeth = hypothosisTeeth + (remainderB - remainderBCheck);
-                return Rotations.of(totalTeeth / messuredGearTeeth);
+        return Rotations.of(getNonZeroMeasuredGearRotations());
+    }
+
+    /**
+     * Reads the measured gear position. Without tracking both encoders are read in one batched refresh,
+     * extrapolated to a common time and solved. With tracking the solve only runs to seed or re-check the
+     * position, which is otherwise followed from encoder A's relative position.
+     * Check {@link #isLastReadingValid()} to see if the encoders agreed.
+     *
+     * @return the measured gear position in rotations, not including the zero position
+     */
+    public double getNonZeroMeasuredGearRotations() {
+        if (!trackingEnabled) {
+            return solveAligned();
+        }
+
+        if (!trackingSeeded || readsSinceSolve >= revalidationPeriod) {
+            double absolute = solveAligned();
+            readsSinceSolve = 0;
+            double tracked = getAlignedRelativeRotations(Utils.getCurrentTimeSeconds());
+            if (!solver.isLastReadingValid()) {
+                return trackingSeeded ? tracked + trackingOffsetRotations : absolute;
             }
+
+            if (!trackingSeeded) {
+                trackingOffsetRotations = absolute - tracked;
+                trackingSeeded = true;
+            } else {
+                // Compare within one unique range so the tracked position keeps counting whole turns
+                double error = Math.IEEEremainder(absolute - (tracked + trackingOffsetRotations), getUniqueRangeRotations());
+                if (Math.abs(error) > solver.getToleranceTeeth() / messuredGearTeeth) {
+                    trackingOffsetRotations += error;
+                }
+            }
+            return tracked + trackingOffsetRotations;
+        }
+
+        BaseStatusSignal.refreshAll(trackingSignals);
+        readsSinceSolve++;
+        return getAlignedRelativeRotations(Utils.getCurrentTimeSeconds()) + trackingOffsetRotations;
+    }
+
+    private double solveAligned() {
+        BaseStatusSignal.refreshAll(signals);
+
+        return solver.solveAligned(
+            positionA.getValueAsDouble(), velocityA.getValueAsDouble(), positionA.getTimestamp().getTime(),
+            positionB.getValueAsDouble(), velocityB.getValueAsDouble(), positionB.getTimestamp().getTime(),
+            Utils.getCurrentTimeSeconds());
+    }
+
+    /** @return encoder A's relative position at the given time, scaled to measured gear rotations */
+    private double getAlignedRelativeRotations(double time) {
+        return extrapolate(relativePositionA, velocityA, time) * aTeeth / messuredGearTeeth;
+    }
+
+    /**
+     * Enables following the position from encoder A's relative position between absolute solves. The tracked
+     * position is continuous, so it keeps counting past the unique range of the two encoders.
+     *
+     * @param enabled true to enable tracking
+     */
+    public void setTrackingEnabled(boolean enabled) {
+        trackingEnabled = enabled;
+        trackingSeeded = false;
+    }
+
+    public boolean isTrackingEnabled() {
+        return trackingEnabled;
+    }
+
+    /**
+     * Sets how often the tracked position is checked against the absolute solve
+     * @param reads number of tracked reads between absolute solves
+     */
+    public void setRevalidationPeriod(int reads) {
+        if (reads < 1) {
+            throw new IllegalArgumentException("Revalidation period must be at least 1 read, got " + reads);
         }
-        return Rotations.of(-1); // Error case, should never happen
+        revalidationPeriod = reads;
+    }
+
+    /**
+     * Solves for the measured gear position from two absolute encoder readings.
+     *
+     * @param rotationsA absolute position of encoder A in rotations
+     * @param rotationsB absolute position of encoder B in rotations
+     * @return the measured gear position in rotations, not including the zero position
+     */
+    public double solve(double rotationsA, double rotationsB) {
+        return solver.solve(rotationsA, rotationsB);
+    }
+
+    /**
+     * Checks if the two encoders agreed within tolerance on the last reading
+     * @return true if the last reading is trustworthy
+     */
+    public boolean isLastReadingValid() {
+        return solver.isLastReadingValid();
+    }
+
+    /**
+     * Gets how far apart the two encoders were on the last reading
+     * @return the mismatch in teeth of the measured gear
+     */
+    public double getLastMismatchTeeth() {
+        return solver.getLastMismatchTeeth();
+    }
+
+    /**
+     * Sets the allowed mismatch between the two encoders. Must be below half a tooth, beyond which a neighboring
+     * hypothesis would match better.
+     *
+     * @param toleranceTeeth allowed mismatch in teeth of the measured gear
+     */
+    public void setToleranceTeeth(double toleranceTeeth) {
+        solver.setToleranceTeeth(toleranceTeeth);
+    }
+
+    public double getToleranceTeeth() {
+        return solver.getToleranceTeeth();
+    }
+
+    /**
+     * Gets the range of travel over which the position is unique
+     * @return the unique range in rotations of the measured gear
+     */
+    public double getUniqueRangeRotations() {
+        return solver.getUniqueRangeRotations();
     }
 
     public void setZeroPosition(Angle zeroPosition) {
@@ -60,4 +222,9 @@ public class CRTEncoder {
     public void reset() {
         setZeroPosition(getMeasuredGearAngle());
     }
+
+    /** Extrapolates a position signal by its velocity from the time it was received to the given time */
+    private static double extrapolate(StatusSignal<Angle> position, StatusSignal<AngularVelocity> velocity, double time) {
+        return CRTSolver.extrapolate(position.getValueAsDouble(), velocity.getValueAsDouble(), position.getTimestamp().getTime(), time);
+    }
 }
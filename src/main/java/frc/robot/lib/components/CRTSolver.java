@@ -0,0 +1,173 @@
+package frc.robot.lib.components;
+
+/**
+ * The Chinese Remainder Theorem solve behind {@link CRTEncoder}, separated from the CANcoders so it can run
+ * without hardware. Two gears with coprime tooth counts {@code aTeeth} and {@code bTeeth} mesh with the measured
+ * gear; each one's absolute position gives the measured gear's position modulo its tooth count, and together they
+ * are unique over {@code aTeeth * bTeeth} teeth of travel.
+ *
+ * <p>The modular inverse of {@code aTeeth} is turned into a residue table at construction, so a solve is a single
+ * table lookup. Measurement noise shows up as a non-integer difference between the two residues; the nearest
+ * integer is the best matching hypothesis and the leftover is checked against a configurable tolerance.
+ */
+public class CRTSolver {
+
+    /** Default allowed mismatch between the two encoders, in teeth of the measured gear */
+    public static final double DEFAULT_TOLERANCE_TEETH = 0.2;
+
+    private final int aTeeth;
+    private final int bTeeth;
+    private final int messuredGearTeeth;
+
+    /** Teeth of travel to add to the A residue for each integer difference between the residues */
+    private final int[] residueOffsets;
+
+    private double toleranceTeeth = DEFAULT_TOLERANCE_TEETH;
+
+    private boolean lastReadingValid = false;
+    private double lastMismatchTeeth = 0;
+
+    public CRTSolver(int aTeeth, int bTeeth, int messuredGearTeeth) {
+        if (aTeeth <= 0 || bTeeth <= 0 || messuredGearTeeth <= 0) {
+            throw new IllegalArgumentException("Tooth counts must be positive");
+        }
+        int inverse = modularInverse(aTeeth, bTeeth);
+        if (inverse < 0) {
+            throw new IllegalArgumentException("Encoder gear tooth counts must be coprime, got " + aTeeth + " and " + bTeeth);
+        }
+
+        this.aTeeth = aTeeth;
+        this.bTeeth = bTeeth;
+        this.messuredGearTeeth = messuredGearTeeth;
+
+        // T = rA + aTeeth * k with k = (rB - rA) * aTeeth^-1 mod bTeeth
+        residueOffsets = new int[bTeeth];
+        for (int difference = 0; difference < bTeeth; difference++) {
+            residueOffsets[difference] = aTeeth * (int) (((long) difference * inverse) % bTeeth);
+        }
+    }
+
+    /**
+     * Solves for the measured gear position from two absolute encoder readings.
+     *
+     * @param rotationsA absolute position of encoder A in rotations
+     * @param rotationsB absolute position of encoder B in rotations
+     * @return the measured gear position in rotations, not including the zero position
+     */
+    public double solve(double rotationsA, double rotationsB) {
+        double remainderA = wrap(rotationsA) * aTeeth;
+        double remainderB = wrap(rotationsB) * bTeeth;
+
+        double difference = remainderB - remainderA;
+        double nearestDifference = Math.rint(difference);
+        lastMismatchTeeth = difference - nearestDifference;
+        lastReadingValid = Math.abs(lastMismatchTeeth) <= toleranceTeeth;
+
+        int residue = Math.floorMod((int) nearestDifference, bTeeth);
+
+        // Average the two encoders' estimates, which differ by the mismatch
+        double totalTeeth = remainderA + residueOffsets[residue] + lastMismatchTeeth / 2;
+        double rangeTeeth = (double) aTeeth * bTeeth;
+        totalTeeth -= Math.floor(totalTeeth / rangeTeeth) * rangeTeeth;
+        return totalTeeth / messuredGearTeeth;
+    }
+
+    /**
+     * Solves for the measured gear position from two encoder readings taken at different times. Each reading is
+     * extrapolated by its velocity to a common time first, so a moving mechanism does not make the residues
+     * disagree.
+     *
+     * @param rotationsA absolute position of encoder A in rotations
+     * @param velocityA velocity of encoder A in rotations per second
+     * @param timeA time encoder A was sampled at, in seconds
+     * @param rotationsB absolute position of encoder B in rotations
+     * @param velocityB velocity of encoder B in rotations per second
+     * @param timeB time encoder B was sampled at, in seconds
+     * @param time the common time to solve at, in the same timebase
+     * @return the measured gear position at {@code time} in rotations, not including the zero position
+     */
+    public double solveAligned(double rotationsA, double velocityA, double timeA, double rotationsB, double velocityB, double timeB, double time) {
+        return solve(extrapolate(rotationsA, velocityA, timeA, time), extrapolate(rotationsB, velocityB, timeB, time));
+    }
+
+    /**
+     * Extrapolates a position by its velocity from the time it was sampled to another time
+     * @param rotations the sampled position
+     * @param velocity the sampled velocity in rotations per second
+     * @param sampleTime the time the position was sampled at
+     * @param time the time to extrapolate to
+     * @return the position at {@code time}
+     */
+    public static double extrapolate(double rotations, double velocity, double sampleTime, double time) {
+        return rotations + velocity * (time - sampleTime);
+    }
+
+    /**
+     * Checks if the two encoders agreed within tolerance on the last reading
+     * @return true if the last reading is trustworthy
+     */
+    public boolean isLastReadingValid() {
+        return lastReadingValid;
+    }
+
+    /**
+     * Gets how far apart the two encoders were on the last reading
+     * @return the mismatch in teeth of the measured gear
+     */
+    public double getLastMismatchTeeth() {
+        return lastMismatchTeeth;
+    }
+
+    /**
+     * Sets the allowed mismatch between the two encoders. Must be below half a tooth, beyond which a neighboring
+     * hypothesis would match better.
+     *
+     * @param toleranceTeeth allowed mismatch in teeth of the measured gear
+     */
+    public void setToleranceTeeth(double toleranceTeeth) {
+        if (!(toleranceTeeth > 0) || toleranceTeeth >= 0.5) {
+            throw new IllegalArgumentException("Tolerance must be between 0 and 0.5 teeth, got " + toleranceTeeth);
+        }
+        this.toleranceTeeth = toleranceTeeth;
+    }
+
+    public double getToleranceTeeth() {
+        return toleranceTeeth;
+    }
+
+    /**
+     * Gets the range of travel over which the position is unique
+     * @return the unique range in rotations of the measured gear
+     */
+    public double getUniqueRangeRotations() {
+        return (double) aTeeth * bTeeth / messuredGearTeeth;
+    }
+
+    private static double wrap(double rotations) {
+        return rotations - Math.floor(rotations);
+    }
+
+    /** @return the inverse of {@code value} modulo {@code modulus}, or -1 if they are not coprime */
+    private static int modularInverse(int value, int modulus) {
+        if (modulus == 1) {
+            return 0;
+        }
+        int oldR = value % modulus;
+        int r = modulus;
+        int oldS = 1;
+        int s = 0;
+        while (r != 0) {
+            int quotient = oldR / r;
+            int temp = oldR - quotient * r;
+            oldR = r;
+            r = temp;
+            temp = oldS - quotient * s;
+            oldS = s;
+            s = temp;
+        }
+        if (oldR != 1) {
+            return -1;
+        }
+        return Math.floorMod(oldS, modulus);
+    }
+}
@@ -0,0 +1,288 @@
+package frc.robot.lib.controllers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleConsumer;
+
+import frc.robot.lib.util.PIDConfiguration;
+
+/**
+ * Runs the profiled PID loops of many axes together. The gains and state of every axis are kept in primitive
+ * arrays, one per quantity, and {@link #step()} updates all axes in one pass over those arrays instead of walking
+ * a ProfiledPIDController object per mechanism, so the per-axis cost stays flat as mechanisms are added.
+ *
+ * <p>Each axis follows a trapezoidal profile towards its goal with a goal velocity of zero and runs a PID on the
+ * profile setpoint, like ProfiledPIDController. The profile is limited cycle by cycle rather than planned ahead like
+ * TrapezoidProfile, so its setpoints can differ slightly. A goal moved behind a moving setpoint is reached by
+ * slowing down and coming back, never by jumping onto it. The integral contribution is clamped to [-1, 1] like
+ * PIDController's default integrator range.
+ *
+ * <p>Owners write measurements and goals during their periodic, and {@link #step()} is then called once per cycle,
+ * after the command scheduler has run, which hands each enabled axis its output. A bank with an axis that drives
+ * an output is stepped by the robot loop through {@link #stepAll()}. Measurements, goals and enables may be written
+ * from a subsystem's control thread, so the bank's state is guarded by the bank and outputs are handed to the
+ * sinks after the lock is released.
+ */
+public class ControllerBank {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    /** Banks with at least one axis driving an output, stepped by {@link #stepAll()} */
+    private static final List<ControllerBank> steppedBanks = new CopyOnWriteArrayList<>();
+
+    private final double period;
+    private int axisCount = 0;
+
+    // Gains and constraints
+    private double[] kP = new double[INITIAL_CAPACITY];
+    private double[] kI = new double[INITIAL_CAPACITY];
+    private double[] kD = new double[INITIAL_CAPACITY];
+    private double[] maxVelocity = new double[INITIAL_CAPACITY];
+    private double[] maxAcceleration = new double[INITIAL_CAPACITY];
+
+    // Inputs
+    private double[] goal = new double[INITIAL_CAPACITY];
+    private double[] measurement = new double[INITIAL_CAPACITY];
+    private boolean[] enabled = new boolean[INITIAL_CAPACITY];
+
+    // State
+    private double[] setpointPosition = new double[INITIAL_CAPACITY];
+    private double[] setpointVelocity = new double[INITIAL_CAPACITY];
+    private double[] integral = new double[INITIAL_CAPACITY];
+    private double[] previousError = new double[INITIAL_CAPACITY];
+    private boolean[] hasPreviousError = new boolean[INITIAL_CAPACITY];
+
+    // Outputs
+    private double[] output = new double[INITIAL_CAPACITY];
+    private DoubleConsumer[] outputSinks = new DoubleConsumer[INITIAL_CAPACITY];
+
+    // Outputs handed to the sinks outside the lock, only touched by the thread stepping the bank
+    private double[] sinkOutput = new double[INITIAL_CAPACITY];
+    private DoubleConsumer[] dueSinks = new DoubleConsumer[INITIAL_CAPACITY];
+    private boolean stepped = false;
+
+    /**
+     * Creates a new ControllerBank.
+     * @param period the time between calls to {@link #step()} in seconds
+     */
+    public ControllerBank(double period) {
+        if (!(period > 0)) {
+            throw new IllegalArgumentException("Controller bank period must be positive, got " + period);
+        }
+        this.period = period;
+    }
+
+    /**
+     * Adds an axis to the bank
+     *
+     * @param config PID gains and profile constraints of the axis
+     * @param initialPosition the current position of the axis, which also becomes its goal
+     * @param outputSink receives the axis output on every step while the axis is enabled, may be null. Once an
+     *                   axis has a sink the bank is stepped by {@link #stepAll()} until it is closed.
+     * @return the index of the axis
+     */
+    public synchronized int registerAxis(PIDConfiguration config, double initialPosition, DoubleConsumer outputSink) {
+        if (axisCount == kP.length) {
+            grow(kP.length * 2);
+        }
+
+        int axis = axisCount++;
+        kP[axis] = config.kP;
+        kI[axis] = config.kI;
+        kD[axis] = config.kD;
+        maxVelocity[axis] = config.maxVel;
+        maxAcceleration[axis] = config.maxAcc;
+        outputSinks[axis] = outputSink;
+        enabled[axis] = true;
+        resetAxis(axis, initialPosition);
+        goal[axis] = initialPosition;
+
+        if (outputSink != null && !stepped) {
+            stepped = true;
+            steppedBanks.add(this);
+        }
+        return axis;
+    }
+
+    /**
+     * Stops {@link #stepAll()} from stepping this bank, so neither the bank nor the subsystems behind its sinks
+     * are kept alive by it. The bank can still be stepped directly.
+     */
+    public synchronized void close() {
+        if (stepped) {
+            stepped = false;
+            steppedBanks.remove(this);
+        }
+    }
+
+    /** Steps every bank that has an axis driving an output. Called once per cycle by the robot loop. */
+    public static void stepAll() {
+        for (ControllerBank bank : steppedBanks) {
+            bank.step();
+        }
+    }
+
+    private void grow(int capacity) {
+        kP = Arrays.copyOf(kP, capacity);
+        kI = Arrays.copyOf(kI, capacity);
+        kD = Arrays.copyOf(kD, capacity);
+        maxVelocity = Arrays.copyOf(maxVelocity, capacity);
+        maxAcceleration = Arrays.copyOf(maxAcceleration, capacity);
+        goal = Arrays.copyOf(goal, capacity);
+        measurement = Arrays.copyOf(measurement, capacity);
+        enabled = Arrays.copyOf(enabled, capacity);
+        setpointPosition = Arrays.copyOf(setpointPosition, capacity);
+        setpointVelocity = Arrays.copyOf(setpointVelocity, capacity);
+        integral = Arrays.copyOf(integral, capacity);
+        previousError = Arrays.copyOf(previousError, capacity);
+        hasPreviousError = Arrays.copyOf(hasPreviousError, capacity);
+        output = Arrays.copyOf(output, capacity);
+        outputSinks = Arrays.copyOf(outputSinks, capacity);
+    }
+
+    /**
+     * Steps the profile and PID of every enabled axis once and hands each its output. Disabled axes hold their
+     * state and output 0.
+     */
+    public void step() {
+        int n;
+        synchronized (this) {
+            n = stepAxes();
+        }
+
+        DoubleConsumer[] sinks = dueSinks;
+        double[] outputs = sinkOutput;
+        for (int i = 0; i < n; i++) {
+            if (sinks[i] != null) {
+                sinks[i].accept(outputs[i]);
+            }
+        }
+    }
+
+    /** @return the number of axes whose outputs were copied out for the sinks */
+    private int stepAxes() {
+        int n = axisCount;
+        double dt = period;
+        if (sinkOutput.length < n) {
+            sinkOutput = new double[kP.length];
+            dueSinks = new DoubleConsumer[kP.length];
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (!enabled[i]) {
+                output[i] = 0.0;
+                continue;
+            }
+
+            // Trapezoidal profile: cruise towards the goal, but never faster than allows stopping on it. The velocity
+            // v reached this step must leave room to brake after this step's travel: d - (v0 + v) dt / 2 >= v^2 / 2a
+            double remaining = goal[i] - setpointPosition[i];
+            double direction = Math.signum(remaining);
+            double acceleration = maxAcceleration[i];
+            double room = Math.abs(remaining) - direction * setpointVelocity[i] * dt / 2;
+            double discriminant = dt * dt / 4 + 2.0 * room / acceleration;
+            double stoppingVelocity = discriminant > 0 ? Math.max(0.0, acceleration * (Math.sqrt(discriminant) - dt / 2)) : 0.0;
+            double targetVelocity = direction * Math.min(maxVelocity[i], stoppingVelocity);
+            double maxChange = acceleration * dt;
+            double velocity = setpointVelocity[i] + Math.max(-maxChange, Math.min(maxChange, targetVelocity - setpointVelocity[i]));
+            double travel = 0.5 * (setpointVelocity[i] + velocity) * dt;
+
+            // Land on the goal instead of oscillating around it, but only when moving towards it
+            boolean arrives = Math.signum(travel) == direction && Math.abs(travel) >= Math.abs(remaining);
+            setpointPosition[i] = arrives ? goal[i] : setpointPosition[i] + travel;
+            setpointVelocity[i] = arrives ? 0.0 : velocity;
+
+            // PID on the profile setpoint
+            double error = setpointPosition[i] - measurement[i];
+            double derivative = hasPreviousError[i] ? (error - previousError[i]) / dt : 0.0;
+            previousError[i] = error;
+            hasPreviousError[i] = true;
+
+            double integralLimit = kI[i] != 0.0 ? 1.0 / Math.abs(kI[i]) : 0.0;
+            integral[i] = Math.max(-integralLimit, Math.min(integralLimit, integral[i] + error * dt));
+
+            output[i] = kP[i] * error + kI[i] * integral[i] + kD[i] * derivative;
+        }
+
+        for (int i = 0; i < n; i++) {
+            sinkOutput[i] = output[i];
+            dueSinks[i] = enabled[i] ? outputSinks[i] : null;
+        }
+        return n;
+    }
+
+    /**
+     * Resets the profile and integrator of an axis to a position at rest
+     * @param axis the axis index
+     * @param position the current position of the axis
+     */
+    public synchronized void reset(int axis, double position) {
+        checkAxis(axis);
+        resetAxis(axis, position);
+    }
+
+    private void resetAxis(int axis, double position) {
+        measurement[axis] = position;
+        setpointPosition[axis] = position;
+        setpointVelocity[axis] = 0;
+        integral[axis] = 0;
+        previousError[axis] = 0;
+        hasPreviousError[axis] = false;
+        output[axis] = 0;
+    }
+
+    public synchronized void setGoal(int axis, double goalPosition) {
+        checkAxis(axis);
+        goal[axis] = goalPosition;
+    }
+
+    public synchronized void setMeasurement(int axis, double measuredPosition) {
+        checkAxis(axis);
+        measurement[axis] = measuredPosition;
+    }
+
+    /**
+     * Enables or disables an axis. A disabled axis is not stepped and its sink gets no outputs. Enabling an axis
+     * again resets it at rest on its latest measurement, so the profile does not jump and the integrator does not
+     * carry what built up before it was disabled.
+     * @param axis the axis index
+     * @param axisEnabled true to step the axis and send its outputs
+     */
+    public synchronized void setEnabled(int axis, boolean axisEnabled) {
+        checkAxis(axis);
+        if (axisEnabled && !enabled[axis]) {
+            resetAxis(axis, measurement[axis]);
+        }
+        enabled[axis] = axisEnabled;
+    }
+
+    public synchronized double getOutput(int axis) {
+        checkAxis(axis);
+        return output[axis];
+    }
+
+    public synchronized double getSetpointPosition(int axis) {
+        checkAxis(axis);
+        return setpointPosition[axis];
+    }
+
+    public synchronized double getSetpointVelocity(int axis) {
+        checkAxis(axis);
+        return setpointVelocity[axis];
+    }
+
+    public synchronized int getAxisCount() {
+        return axisCount;
+    }
+
+    public double getPeriod() {
+        return period;
+    }
+
+    private void checkAxis(int axis) {
+        if (axis < 0 || axis >= axisCount) {
+            throw new IndexOutOfBoundsException("No axis " + axis + " in a bank of " + axisCount);
+        }
+    }
+}
@@ -4,12 +4,39 @@ import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.trajectory.TrapezoidProfile.Constraints;
 import frc.robot.lib.util.FFConfiguration;
+import frc.robot.lib.util.GainSchedule;
 import frc.robot.lib.util.PIDConfiguration;
 
+/**
+ * A profiled PID controller with a motor feedforward. Each call to {@link #calculate(double)} steps the motion
+ * profile exactly once and feeds the profile's setpoint velocity and acceleration into the feedforward.
+ *
+ * <p>With a {@link GainSchedule} the gains are interpolated every cycle from the scheduling variable. The integral
+ * term is then accumulated as {@code kI * error * dt} rather than multiplying the accumulated error by the current
+ * kI, so changing gains never bumps the output. Both modes run the same {@link SimpleMotorFeedforward}, a schedule
+ * only writes its gains into it. Clearing the schedule restores the configured gains.
+ */
 public class PIDFFController {
     private ProfiledPIDController pidController;
     private SimpleMotorFeedforward feedforward;
 
+    // Configured gains, restored when a gain schedule is cleared
+    private final double kP;
+    private final double kI;
+    private final double kD;
+    private final double kS;
+    private final double kV;
+    private final double kA;
+
+    private double lastSetpointVelocity = 0;
+    private double lastComputeTimeSeconds = 0;
+
+    private GainSchedule gainSchedule = null;
+    private double schedulingValue = 0;
+    private double integralTerm = 0;
+    private double minimumIntegral = -1.0;
+    private double maximumIntegral = 1.0;
+
     public PIDFFController(double p, double i, double d, double maxVelo, double maxAccel) {
         this(p, i, d, 0, 0, 0, maxVelo, maxAccel);
     }
@@ -17,7 +44,13 @@ public class PIDFFController {
     public PIDFFController(
             double p, double i, double d, double s, double v, double a, double maxVelo, double maxAccel) {
         pidController = new ProfiledPIDController(p, i, d, new Constraints(maxVelo, maxAccel));
-        feedforward = new SimpleMotorFeedforward(s, v, a);
+        feedforward = new SimpleMotorFeedforward(s, v, a, pidController.getPeriod());
+        kP = p;
+        kI = i;
+        kD = d;
+        kS = s;
+        kV = v;
+        kA = a;
     }
 
     public PIDFFController(PIDConfiguration config) {
@@ -56,13 +89,124 @@ public class PIDFFController {
         pidController.setGoal(s);
     }
 
+    /**
+     * Steps the profile once and computes the output
+     * @param measurement the current measurement of the process variable
+     * @return the PID output plus the feedforward for the profile's setpoint
+     */
     public double calculate(double measurement) {
-        return pidController.calculate(measurement) + feedforward.calculate(pidController.calculate(measurement));
+        long start = System.nanoTime();
+
+        double output;
+        if (gainSchedule != null) {
+            output = calculateScheduled(measurement);
+        } else {
+            double pidOutput = pidController.calculate(measurement);
+            output = pidOutput + calculateFeedforward();
+        }
+
+        lastComputeTimeSeconds = (System.nanoTime() - start) * 1e-9;
+        return output;
     }
 
+    /**
+     * Sets a new goal, then steps the profile once and computes the output
+     * @param measurement the current measurement of the process variable
+     * @param setpoint the new goal of the controller
+     * @return the PID output plus the feedforward for the profile's setpoint
+     */
     public double calculate(double measurement, double setpoint) {
-        return pidController.calculate(measurement)
-                + feedforward.calculate(pidController.calculate(measurement, setpoint));
+        pidController.setGoal(setpoint);
+        return calculate(measurement);
+    }
+
+    private double calculateFeedforward() {
+        // The profile moved from the last setpoint velocity to this one over one period, which gives kA its acceleration
+        double setpointVelocity = pidController.getSetpoint().velocity;
+        double output = feedforward.calculateWithVelocities(lastSetpointVelocity, setpointVelocity);
+        lastSetpointVelocity = setpointVelocity;
+        return output;
+    }
+
+    private double calculateScheduled(double measurement) {
+        switch (gainSchedule.getVariable()) {
+            case POSITION:
+                gainSchedule.update(measurement);
+                break;
+            case VELOCITY:
+                gainSchedule.update(pidController.getSetpoint().velocity);
+                break;
+            default:
+                gainSchedule.update(schedulingValue);
+                break;
+        }
+
+        // The controller's own integrator stays off, the integral term is kept here instead
+        pidController.setPID(gainSchedule.getKP(), 0, gainSchedule.getKD());
+        double pidOutput = pidController.calculate(measurement);
+
+        integralTerm += gainSchedule.getKI() * pidController.getPositionError() * pidController.getPeriod();
+        integralTerm = Math.max(minimumIntegral, Math.min(maximumIntegral, integralTerm));
+
+        feedforward.setKs(gainSchedule.getKS());
+        feedforward.setKv(gainSchedule.getKV());
+        feedforward.setKa(gainSchedule.getKA());
+        return pidOutput + integralTerm + calculateFeedforward();
+    }
+
+    /**
+     * Schedules the gains from a table instead of using the fixed gains. The integrator is cleared either way and
+     * the profile keeps its setpoint.
+     * @param schedule the gain schedule, or null to go back to the fixed gains
+     */
+    public void setGainSchedule(GainSchedule schedule) {
+        gainSchedule = schedule;
+        integralTerm = 0;
+        if (schedule == null) {
+            pidController.setPID(kP, kI, kD);
+            feedforward.setKs(kS);
+            feedforward.setKv(kV);
+            feedforward.setKa(kA);
+        }
+        // Clears the controller's integrator and error history without moving the profile
+        pidController.reset(pidController.getSetpoint());
+    }
+
+    /**
+     * Sets the scheduling variable for a schedule keyed on {@link GainSchedule.Variable#EXTERNAL}
+     * @param value the current value of the scheduling variable
+     */
+    public void setSchedulingValue(double value) {
+        schedulingValue = value;
+    }
+
+    /**
+     * Sets the range the scheduled integral term is clamped to
+     * @param minimumIntegral the lowest integral contribution to the output
+     * @param maximumIntegral the highest integral contribution to the output
+     */
+    public void setScheduledIntegratorRange(double minimumIntegral, double maximumIntegral) {
+        this.minimumIntegral = minimumIntegral;
+        this.maximumIntegral = maximumIntegral;
+    }
+
+    /**
+     * Resets the profile and integrator to the current state of the mechanism
+     * @param measuredPosition the current position
+     * @param measuredVelocity the current velocity
+     */
+    public void reset(double measuredPosition, double measuredVelocity) {
+        pidController.reset(measuredPosition, measuredVelocity);
+        lastSetpointVelocity = measuredVelocity;
+        integralTerm = 0;
+    }
+
+    /**
+     * Gets how long the last call to calculate took
+     * @return compute time in seconds
+     */
+    public double getLastComputeTime() {
+        return lastComputeTimeSeconds;
     }
 
     public boolean atSetpoint() {
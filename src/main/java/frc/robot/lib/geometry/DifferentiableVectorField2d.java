@@ -0,0 +1,164 @@
+package frc.robot.lib.geometry;
+
+/**
+ * A vector field that can compute its Jacobian along with its value. Fields built from the factories in this
+ * interface carry analytic Jacobians through composition, and any other field can be wrapped with a finite
+ * difference Jacobian. A single {@link #computeJacobian} call then feeds the gradient, divergence and curl together.
+ */
+public interface DifferentiableVectorField2d extends VectorField2d {
+
+    /** Default step for finite difference Jacobians */
+    public static final double DEFAULT_DIFFERENCE_STEP = 1e-4;
+
+    /**
+     * Computes the value and Jacobian of the field at a given x and y coordinate.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param result the value and Jacobian to write into
+     * @return {@code result}, for chaining
+     */
+    Jacobian2d computeJacobian(double x, double y, Jacobian2d result);
+
+    public enum DifferenceMode {
+        /** First order accurate, three field evaluations */
+        FORWARD,
+        /** Second order accurate, five field evaluations */
+        CENTRAL
+    }
+
+    /**
+     * Wraps a field with a finite difference Jacobian
+     *
+     * @param field the field to differentiate
+     * @param mode the finite difference scheme
+     * @param step the finite difference step
+     * @return the differentiable field
+     */
+    public static DifferentiableVectorField2d fromField(VectorField2d field, DifferenceMode mode, double step) {
+        if (field instanceof DifferentiableVectorField2d) {
+            return (DifferentiableVectorField2d) field;
+        }
+        return new DifferentiableVectorField2d() {
+            @Override
+            public Vector2d computeVector(double x, double y) {
+                return field.computeVector(x, y);
+            }
+
+            @Override
+            public Jacobian2d computeJacobian(double x, double y, Jacobian2d result) {
+                Vector2d value = field.computeVector(x, y);
+                double vx = value.getX();
+                double vy = value.getY();
+
+                if (mode == DifferenceMode.FORWARD) {
+                    Vector2d xPlus = field.computeVector(x + step, y);
+                    Vector2d yPlus = field.computeVector(x, y + step);
+                    return result.set(vx, vy,
+                        (xPlus.getX() - vx) / step, (yPlus.getX() - vx) / step,
+                        (xPlus.getY() - vy) / step, (yPlus.getY() - vy) / step);
+                }
+
+                Vector2d xPlus = field.computeVector(x + step, y);
+                Vector2d xMinus = field.computeVector(x - step, y);
+                Vector2d yPlus = field.computeVector(x, y + step);
+                Vector2d yMinus = field.computeVector(x, y - step);
+                double inverseTwoStep = 0.5 / step;
+                return result.set(vx, vy,
+                    (xPlus.getX() - xMinus.getX()) * inverseTwoStep, (yPlus.getX() - yMinus.getX()) * inverseTwoStep,
+                    (xPlus.getY() - xMinus.getY()) * inverseTwoStep, (yPlus.getY() - yMinus.getY()) * inverseTwoStep);
+            }
+        };
+    }
+
+    public static DifferentiableVectorField2d fromField(VectorField2d field, DifferenceMode mode) {
+        return fromField(field, mode, DEFAULT_DIFFERENCE_STEP);
+    }
+
+    public static DifferentiableVectorField2d getZeroField() {
+        return getConstantField(0.0, 0.0);
+    }
+
+    public static DifferentiableVectorField2d getConstantField(double vx, double vy) {
+        return new DifferentiableVectorField2d() {
+            @Override
+            public Vector2d computeVector(double x, double y) {
+                return new Vector2d(vx, vy);
+            }
+
+            @Override
+            public Jacobian2d computeJacobian(double x, double y, Jacobian2d result) {
+                return result.set(vx, vy, 0.0, 0.0, 0.0, 0.0);
+            }
+        };
+    }
+
+    public static DifferentiableVectorField2d getFieldToPoint(double targetX, double targetY) {
+        return new DifferentiableVectorField2d() {
+            @Override
+            public Vector2d computeVector(double x, double y) {
+                return new Vector2d(targetX - x, targetY - y);
+            }
+
+            @Override
+            public Jacobian2d computeJacobian(double x, double y, Jacobian2d result) {
+                return result.set(targetX - x, targetY - y, -1.0, 0.0, 0.0, -1.0);
+            }
+        };
+    }
+
+    public static DifferentiableVectorField2d addFields(DifferentiableVectorField2d field1, DifferentiableVectorField2d field2) {
+        // Each thread gets its own scratch space, so composed fields stay safe to sample in parallel
+        ThreadLocal<Jacobian2d> scratch = ThreadLocal.withInitial(Jacobian2d::new);
+        return new DifferentiableVectorField2d() {
+            @Override
+            public Vector2d computeVector(double x, double y) {
+                Vector2d vector1 = field1.computeVector(x, y);
+                Vector2d vector2 = field2.computeVector(x, y);
+                return new Vector2d(vector1.getX() + vector2.getX(), vector1.getY() + vector2.getY());
+            }
+
+            @Override
+            public Jacobian2d computeJacobian(double x, double y, Jacobian2d result) {
+                field1.computeJacobian(x, y, result);
+                return result.add(field2.computeJacobian(x, y, scratch.get()));
+            }
+        };
+    }
+
+    public static DifferentiableVectorField2d scaleField(DifferentiableVectorField2d field, double scalar) {
+        return new DifferentiableVectorField2d() {
+            @Override
+            public Vector2d computeVector(double x, double y) {
+                return field.computeVector(x, y).scaled(scalar);
+            }
+
+            @Override
+            public Jacobian2d computeJacobian(double x, double y, Jacobian2d result) {
+                return field.computeJacobian(x, y, result).scale(scalar);
+            }
+        };
+    }
+
+    public static DifferentiableVectorField2d invertField(DifferentiableVectorField2d field) {
+        return scaleField(field, -1.0);
+    }
+
+    @Override
+    default VectorField2d getGradient() {
+        return (x, y) -> {
+            Jacobian2d jacobian = computeJacobian(x, y, new Jacobian2d());
+            return new Vector2d(jacobian.getDVxDx(), jacobian.getDVyDy());
+        };
+    }
+
+    @Override
+    default VectorField2d getDivergence() {
+        return (x, y) -> new Vector2d(computeJacobian(x, y, new Jacobian2d()).getDivergence(), 0.0);
+    }
+
+    @Override
+    default VectorField2d getCurl() {
+        return (x, y) -> new Vector2d(0.0, computeJacobian(x, y, new Jacobian2d()).getCurl());
+    }
+}
@@ -1,59 +1,104 @@
 package frc.robot.lib.geometry;
 
+import static edu.wpi.first.units.Units.Meters;
+
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.units.DistanceUnit;
 import edu.wpi.first.units.measure.Distance;
 
+/**
+ * A mutable location on the field. The coordinates are stored as primitive meters so that reading and writing
+ * them in a given unit does not allocate; {@link Distance} and {@link Translation2d} are only created when asked for.
+ */
 public class FieldLocation {
     
-    private Distance x;
-    private Distance y;
+    private double xMeters;
+    private double yMeters;
 
     public FieldLocation(Distance x, Distance y) {
-        this.x = x;
-        this.y = y;
+        this.xMeters = x.in(Meters);
+        this.yMeters = y.in(Meters);
     }
 
     public FieldLocation(double x, double y, DistanceUnit unit) {
-        this.x = unit.of(x);
-        this.y = unit.of(y);
+        this.xMeters = unit.toBaseUnits(x);
+        this.yMeters = unit.toBaseUnits(y);
     }
 
     public FieldLocation(Translation2d translation, DistanceUnit unit) {
-        this.x = unit.of(translation.getX());
-        this.y = unit.of(translation.getY());
+        this(translation.getX(), translation.getY(), unit);
     }
 
     public Distance getX() {
-        return x;
+        return Meters.of(xMeters);
     }
 
     public Distance getY() {
-        return y;
+        return Meters.of(yMeters);
     }
 
     public double getX(DistanceUnit unit) {
-        return x.in(unit);
+        return unit.fromBaseUnits(xMeters);
     }
 
     public double getY(DistanceUnit unit) {
-        return y.in(unit);
+        return unit.fromBaseUnits(yMeters);
+    }
+
+    public double getXMeters() {
+        return xMeters;
+    }
+
+    public double getYMeters() {
+        return yMeters;
     }
 
     public void setX(Distance x) {
-        this.x = x;
+        this.xMeters = x.in(Meters);
     }
 
     public void setY(Distance y) {
-        this.y = y;
+        this.yMeters = y.in(Meters);
     }
 
     public void setX(double x, DistanceUnit unit) {
-        this.x = unit.of(x);
+        this.xMeters = unit.toBaseUnits(x);
     }
 
     public void setY(double y, DistanceUnit unit) {
-        this.y = unit.of(y);
+        this.yMeters = unit.toBaseUnits(y);
+    }
+
+    /**
+     * Sets both coordinates in place
+     * @param xMeters the x-coordinate in meters
+     * @param yMeters the y-coordinate in meters
+     * @return this location, for chaining
+     */
+    public FieldLocation setMeters(double xMeters, double yMeters) {
+        this.xMeters = xMeters;
+        this.yMeters = yMeters;
+        return this;
+    }
+
+    /**
+     * Moves this location in place by a vector in meters
+     * @param offsetMeters the offset to apply
+     * @return this location, for chaining
+     */
+    public FieldLocation translate(MutableVector2d offsetMeters) {
+        this.xMeters += offsetMeters.getX();
+        this.yMeters += offsetMeters.getY();
+        return this;
+    }
+
+    /**
+     * Gets the distance to another location without allocating
+     * @param other the other location
+     * @return the distance in meters
+     */
+    public double getDistanceMeters(FieldLocation other) {
+        return Math.hypot(other.xMeters - xMeters, other.yMeters - yMeters);
     }
 
     public Translation2d getIn(DistanceUnit unit) {
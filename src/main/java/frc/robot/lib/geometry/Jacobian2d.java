@@ -0,0 +1,84 @@
+package frc.robot.lib.geometry;
+
+/**
+ * The value and Jacobian of a 2d vector field at a point. Instances are mutable and meant to be reused, so that a
+ * single evaluation can feed the divergence, curl and any other derivative quantity without allocating.
+ */
+public class Jacobian2d {
+    private double vx;
+    private double vy;
+    private double dVxDx;
+    private double dVxDy;
+    private double dVyDx;
+    private double dVyDy;
+
+    public Jacobian2d set(double vx, double vy, double dVxDx, double dVxDy, double dVyDx, double dVyDy) {
+        this.vx = vx;
+        this.vy = vy;
+        this.dVxDx = dVxDx;
+        this.dVxDy = dVxDy;
+        this.dVyDx = dVyDx;
+        this.dVyDy = dVyDy;
+        return this;
+    }
+
+    public Jacobian2d set(Jacobian2d other) {
+        return set(other.vx, other.vy, other.dVxDx, other.dVxDy, other.dVyDx, other.dVyDy);
+    }
+
+    /**
+     * Adds another field's value and Jacobian in place, which is the Jacobian of the sum of the fields
+     * @param other the value and Jacobian to add
+     * @return this, for chaining
+     */
+    public Jacobian2d add(Jacobian2d other) {
+        return set(vx + other.vx, vy + other.vy, dVxDx + other.dVxDx, dVxDy + other.dVxDy, dVyDx + other.dVyDx, dVyDy + other.dVyDy);
+    }
+
+    /**
+     * Scales the value and Jacobian in place, which is the Jacobian of the scaled field
+     * @param scalar the scale to apply
+     * @return this, for chaining
+     */
+    public Jacobian2d scale(double scalar) {
+        return set(vx * scalar, vy * scalar, dVxDx * scalar, dVxDy * scalar, dVyDx * scalar, dVyDy * scalar);
+    }
+
+    public double getX() {
+        return vx;
+    }
+
+    public double getY() {
+        return vy;
+    }
+
+    public double getDVxDx() {
+        return dVxDx;
+    }
+
+    public double getDVxDy() {
+        return dVxDy;
+    }
+
+    public double getDVyDx() {
+        return dVyDx;
+    }
+
+    public double getDVyDy() {
+        return dVyDy;
+    }
+
+    /** @return dVx/dx + dVy/dy */
+    public double getDivergence() {
+        return dVxDx + dVyDy;
+    }
+
+    /** @return dVy/dx - dVx/dy */
+    public double getCurl() {
+        return dVyDx - dVxDy;
+    }
+
+    public MutableVector2d getValue(MutableVector2d result) {
+        return result.set(vx, vy);
+    }
+}
@@ -0,0 +1,158 @@
+package frc.robot.lib.geometry;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * A mutable 2d vector backed by two doubles. Every operation changes this vector in place and returns it for
+ * chaining, so hot loops can reuse a few instances instead of allocating a {@link Translation2d} per operation.
+ * Convert to and from the WPILib types only at the edges.
+ */
+public class MutableVector2d {
+    private double x;
+    private double y;
+
+    public MutableVector2d() {
+        this(0.0, 0.0);
+    }
+
+    public MutableVector2d(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public MutableVector2d(Translation2d translation) {
+        this(translation.getX(), translation.getY());
+    }
+
+    public MutableVector2d(Vector2d vector) {
+        this(vector.getX(), vector.getY());
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getMagnitude() {
+        return Math.hypot(x, y);
+    }
+
+    public double getSquaredMagnitude() {
+        return x * x + y * y;
+    }
+
+    /**
+     * Gets the direction of the vector
+     * @return the angle from the positive x-axis in radians
+     */
+    public double getDirectionRadians() {
+        return Math.atan2(y, x);
+    }
+
+    public double getDotProduct(MutableVector2d other) {
+        return x * other.x + y * other.y;
+    }
+
+    public double getCrossProduct(MutableVector2d other) {
+        return x * other.y - y * other.x;
+    }
+
+    public MutableVector2d set(double x, double y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    public MutableVector2d set(MutableVector2d other) {
+        return set(other.x, other.y);
+    }
+
+    public MutableVector2d set(Translation2d translation) {
+        return set(translation.getX(), translation.getY());
+    }
+
+    public MutableVector2d set(Vector2d vector) {
+        return set(vector.getX(), vector.getY());
+    }
+
+    public MutableVector2d add(double dx, double dy) {
+        this.x += dx;
+        this.y += dy;
+        return this;
+    }
+
+    public MutableVector2d add(MutableVector2d other) {
+        return add(other.x, other.y);
+    }
+
+    /**
+     * Adds a scaled vector in place, {@code this += other * scalar}
+     * @param other the vector to add
+     * @param scalar the scale to apply to {@code other}
+     * @return this vector, for chaining
+     */
+    public MutableVector2d addScaled(MutableVector2d other, double scalar) {
+        return add(other.x * scalar, other.y * scalar);
+    }
+
+    public MutableVector2d subtract(MutableVector2d other) {
+        return add(-other.x, -other.y);
+    }
+
+    public MutableVector2d scale(double scalar) {
+        this.x *= scalar;
+        this.y *= scalar;
+        return this;
+    }
+
+    public MutableVector2d invert() {
+        return scale(-1.0);
+    }
+
+    /**
+     * Rotates the vector in place
+     * @param radians counter-clockwise rotation in radians
+     * @return this vector, for chaining
+     */
+    public MutableVector2d rotate(double radians) {
+        return rotate(Math.cos(radians), Math.sin(radians));
+    }
+
+    public MutableVector2d rotate(Rotation2d rotation) {
+        return rotate(rotation.getCos(), rotation.getSin());
+    }
+
+    /**
+     * Rotates the vector in place by a rotation given as its cosine and sine, avoiding the trig calls
+     * @param cos cosine of the rotation
+     * @param sin sine of the rotation
+     * @return this vector, for chaining
+     */
+    public MutableVector2d rotate(double cos, double sin) {
+        return set(x * cos - y * sin, x * sin + y * cos);
+    }
+
+    /**
+     * Scales the vector in place to a magnitude of one. A zero vector is left unchanged.
+     * @return this vector, for chaining
+     */
+    public MutableVector2d normalize() {
+        double magnitude = getMagnitude();
+        if (magnitude > 0.0) {
+            scale(1.0 / magnitude);
+        }
+        return this;
+    }
+
+    public Translation2d toTranslation2d() {
+        return new Translation2d(x, y);
+    }
+
+    public Vector2d toVector2d() {
+        return new Vector2d(x, y);
+    }
+}
@@ -0,0 +1,274 @@
+package frc.robot.lib.geometry;
+
+import java.util.stream.IntStream;
+
+/**
+ * A {@link VectorField2d} baked into a uniform grid. The source field is evaluated once per grid point when the
+ * sampled field is created, so however deep the composition of the source field is, a lookup is a constant time
+ * bilinear interpolation. Derivative grids are precomputed as well, so the gradient, divergence and curl of a
+ * sampled field do not evaluate the field again; they are taken from the source field's Jacobian when it is a
+ * {@link DifferentiableVectorField2d} and from central differences of the grid otherwise. Points outside of the
+ * grid are clamped to its edges.
+ */
+public class SampledVectorField2d implements DifferentiableVectorField2d {
+
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+    private final int columns;
+    private final int rows;
+    private final double spacingX;
+    private final double spacingY;
+    private final double inverseSpacingX;
+    private final double inverseSpacingY;
+
+    // Row major grids, index = row * columns + column
+    private final double[] vx;
+    private final double[] vy;
+    private final double[] dVxDx;
+    private final double[] dVxDy;
+    private final double[] dVyDx;
+    private final double[] dVyDy;
+
+    /**
+     * Samples a field over a rectangle.
+     *
+     * @param field the field to sample
+     * @param minX the lowest x-coordinate of the grid
+     * @param minY the lowest y-coordinate of the grid
+     * @param maxX the highest x-coordinate of the grid
+     * @param maxY the highest y-coordinate of the grid
+     * @param spacing the largest allowed distance between grid points
+     * @param parallel true to sample rows in parallel on the common fork-join pool, which requires
+     *                 {@code field} to be safe to call from several threads
+     */
+    public SampledVectorField2d(VectorField2d field, double minX, double minY, double maxX, double maxY, double spacing, boolean parallel) {
+        if (!(maxX > minX) || !(maxY > minY)) {
+            throw new IllegalArgumentException("Sampled field extents must be non-empty");
+        }
+        if (!(spacing > 0)) {
+            throw new IllegalArgumentException("Sampled field spacing must be positive, got " + spacing);
+        }
+
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.columns = (int) Math.ceil((maxX - minX) / spacing) + 1;
+        this.rows = (int) Math.ceil((maxY - minY) / spacing) + 1;
+        this.spacingX = (maxX - minX) / (columns - 1);
+        this.spacingY = (maxY - minY) / (rows - 1);
+        this.inverseSpacingX = 1.0 / spacingX;
+        this.inverseSpacingY = 1.0 / spacingY;
+
+        int size = columns * rows;
+        vx = new double[size];
+        vy = new double[size];
+        dVxDx = new double[size];
+        dVxDy = new double[size];
+        dVyDx = new double[size];
+        dVyDy = new double[size];
+
+        IntStream rowIndices = IntStream.range(0, rows);
+        if (parallel) {
+            rowIndices = rowIndices.parallel();
+        }
+
+        if (field instanceof DifferentiableVectorField2d) {
+            // Exact derivatives are available, so there is no need to difference the grid
+            DifferentiableVectorField2d differentiableField = (DifferentiableVectorField2d) field;
+            rowIndices.forEach(row -> sampleRowWithJacobian(differentiableField, row));
+            return;
+        }
+
+        rowIndices.forEach(row -> sampleRow(field, row));
+
+        rowIndices = IntStream.range(0, rows);
+        if (parallel) {
+            rowIndices = rowIndices.parallel();
+        }
+        rowIndices.forEach(this::differentiateRow);
+    }
+
+    private void sampleRowWithJacobian(DifferentiableVectorField2d field, int row) {
+        Jacobian2d jacobian = new Jacobian2d();
+        double y = minY + row * spacingY;
+        for (int column = 0; column < columns; column++) {
+            field.computeJacobian(minX + column * spacingX, y, jacobian);
+            int index = row * columns + column;
+            vx[index] = jacobian.getX();
+            vy[index] = jacobian.getY();
+            dVxDx[index] = jacobian.getDVxDx();
+            dVxDy[index] = jacobian.getDVxDy();
+            dVyDx[index] = jacobian.getDVyDx();
+            dVyDy[index] = jacobian.getDVyDy();
+        }
+    }
+
+    private void sampleRow(VectorField2d field, int row) {
+        double y = minY + row * spacingY;
+        for (int column = 0; column < columns; column++) {
+            Vector2d vector = field.computeVector(minX + column * spacingX, y);
+            int index = row * columns + column;
+            vx[index] = vector.getX();
+            vy[index] = vector.getY();
+        }
+    }
+
+    private void differentiateRow(int row) {
+        // Central differences inside the grid, one sided differences on its edges
+        int rowBelow = Math.max(row - 1, 0);
+        int rowAbove = Math.min(row + 1, rows - 1);
+        double inverseDy = 1.0 / ((rowAbove - rowBelow) * spacingY);
+
+        for (int column = 0; column < columns; column++) {
+            int columnLeft = Math.max(column - 1, 0);
+            int columnRight = Math.min(column + 1, columns - 1);
+            double inverseDx = 1.0 / ((columnRight - columnLeft) * spacingX);
+
+            int index = row * columns + column;
+            int left = row * columns + columnLeft;
+            int right = row * columns + columnRight;
+            int below = rowBelow * columns + column;
+            int above = rowAbove * columns + column;
+
+            dVxDx[index] = (vx[right] - vx[left]) * inverseDx;
+            dVyDx[index] = (vy[right] - vy[left]) * inverseDx;
+            dVxDy[index] = (vx[above] - vx[below]) * inverseDy;
+            dVyDy[index] = (vy[above] - vy[below]) * inverseDy;
+        }
+    }
+
+    /**
+     * Bilinearly interpolates a grid. The cell and weights are computed by the caller so several grids can share
+     * them.
+     */
+    private double interpolate(double[] grid, int index, double tx, double ty) {
+        double bottom = grid[index] + tx * (grid[index + 1] - grid[index]);
+        double top = grid[index + columns] + tx * (grid[index + columns + 1] - grid[index + columns]);
+        return bottom + ty * (top - bottom);
+    }
+
+    private int cellIndex(double gridX, double gridY) {
+        int column = Math.min((int) gridX, columns - 2);
+        int row = Math.min((int) gridY, rows - 2);
+        return row * columns + column;
+    }
+
+    private double toGridX(double x) {
+        return (Math.min(Math.max(x, minX), maxX) - minX) * inverseSpacingX;
+    }
+
+    private double toGridY(double y) {
+        return (Math.min(Math.max(y, minY), maxY) - minY) * inverseSpacingY;
+    }
+
+    @Override
+    public Vector2d computeVector(double x, double y) {
+        return new Vector2d(getX(x, y), getY(x, y));
+    }
+
+    /**
+     * Computes the vector at a point without allocating
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param result the vector to write the result into
+     * @return {@code result}, for chaining
+     */
+    public MutableVector2d computeVector(double x, double y, MutableVector2d result) {
+        double gridX = toGridX(x);
+        double gridY = toGridY(y);
+        int index = cellIndex(gridX, gridY);
+        double tx = gridX - index % columns;
+        double ty = gridY - index / columns;
+        return result.set(interpolate(vx, index, tx, ty), interpolate(vy, index, tx, ty));
+    }
+
+    @Override
+    public Jacobian2d computeJacobian(double x, double y, Jacobian2d result) {
+        double gridX = toGridX(x);
+        double gridY = toGridY(y);
+        int index = cellIndex(gridX, gridY);
+        double tx = gridX - index % columns;
+        double ty = gridY - index / columns;
+        return result.set(
+            interpolate(vx, index, tx, ty),
+            interpolate(vy, index, tx, ty),
+            interpolate(dVxDx, index, tx, ty),
+            interpolate(dVxDy, index, tx, ty),
+            interpolate(dVyDx, index, tx, ty),
+            interpolate(dVyDy, index, tx, ty));
+    }
+
+    /**
+     * Gets the x component of the field at a point
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @return the x component
+     */
+    public double getX(double x, double y) {
+        return sample(vx, x, y);
+    }
+
+    /**
+     * Gets the y component of the field at a point
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @return the y component
+     */
+    public double getY(double x, double y) {
+        return sample(vy, x, y);
+    }
+
+    /**
+     * Gets the divergence of the field at a point from the precomputed derivative grids
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @return dVx/dx + dVy/dy
+     */
+    public double getDivergence(double x, double y) {
+        return sample(dVxDx, x, y) + sample(dVyDy, x, y);
+    }
+
+    /**
+     * Gets the curl of the field at a point from the precomputed derivative grids
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @return dVy/dx - dVx/dy
+     */
+    public double getCurl(double x, double y) {
+        return sample(dVyDx, x, y) - sample(dVxDy, x, y);
+    }
+
+    private double sample(double[] grid, double x, double y) {
+        double gridX = toGridX(x);
+        double gridY = toGridY(y);
+        int index = cellIndex(gridX, gridY);
+        return interpolate(grid, index, gridX - index % columns, gridY - index / columns);
+    }
+
+    @Override
+    public VectorField2d getGradient() {
+        return (x, y) -> new Vector2d(sample(dVxDx, x, y), sample(dVyDy, x, y));
+    }
+
+    @Override
+    public VectorField2d getDivergence() {
+        return (x, y) -> new Vector2d(getDivergence(x, y), 0.0);
+    }
+
+    @Override
+    public VectorField2d getCurl() {
+        return (x, y) -> new Vector2d(0.0, getCurl(x, y));
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+}
@@ -50,7 +50,7 @@ public class Vector2d {
     }
 
     public void scale(double scalar) {
-        vector.times(scalar);
+        vector = vector.times(scalar);
     }
 
     public Vector2d scaled(double scalar) {
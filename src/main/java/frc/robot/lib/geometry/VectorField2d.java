@@ -13,6 +13,9 @@ public interface VectorField2d {
 	Vector2d computeVector(double x, double y);
 
     public static VectorField2d getGradient(VectorField2d field) {
+        if (field instanceof DifferentiableVectorField2d) {
+            return field.getGradient();
+        }
         return (x, y) -> {
             final double delta = 1e-4;
 
@@ -32,6 +35,9 @@ public interface VectorField2d {
     }
 
     public static VectorField2d getDivergence(VectorField2d field) {
+        if (field instanceof DifferentiableVectorField2d) {
+            return field.getDivergence();
+        }
         return (x, y) -> {
             final double delta = 1e-4;
 
@@ -51,6 +57,9 @@ public interface VectorField2d {
     }
 
     public static VectorField2d getCurl(VectorField2d field) {
+        if (field instanceof DifferentiableVectorField2d) {
+            return field.getCurl();
+        }
         return (x, y) -> {
             final double delta = 1e-4;
 
@@ -74,7 +83,8 @@ public interface VectorField2d {
     }
 
     public static VectorField2d getConstantField(Vector2d constantVector) {
-        return (x, y) -> constantVector;
+        // Hand out copies, the composition helpers modify the vectors they are given in place
+        return (x, y) -> new Vector2d(constantVector.getVectorAsTranslation());
     }
 
     public static VectorField2d getFieldToPoint(double targetX, double targetY) {
@@ -98,6 +108,27 @@ public interface VectorField2d {
         };
     }
 
+    /**
+     * Bakes a field into a grid so that evaluating it, and its derivatives, costs a constant time lookup
+     * no matter how deeply the field is composed.
+     *
+     * @param field the field to sample
+     * @param minX the lowest x-coordinate of the grid
+     * @param minY the lowest y-coordinate of the grid
+     * @param maxX the highest x-coordinate of the grid
+     * @param maxY the highest y-coordinate of the grid
+     * @param spacing the largest allowed distance between grid points
+     * @param parallel true to sample in parallel, which requires the field to be thread safe
+     * @return the sampled field
+     */
+    public static SampledVectorField2d getSampledField(VectorField2d field, double minX, double minY, double maxX, double maxY, double spacing, boolean parallel) {
+        return new SampledVectorField2d(field, minX, minY, maxX, maxY, spacing, parallel);
+    }
+
+    default SampledVectorField2d getSampledField(double minX, double minY, double maxX, double maxY, double spacing, boolean parallel) {
+        return getSampledField(this, minX, minY, maxX, maxY, spacing, parallel);
+    }
+
     public static VectorField2d invertField(VectorField2d field) {
         return (x, y) -> {
             Vector2d vector = field.computeVector(x, y);
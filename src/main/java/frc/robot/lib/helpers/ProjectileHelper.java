@@ -3,16 +3,22 @@ package frc.robot.lib.helpers;
 import static edu.wpi.first.units.Units.Meters;
 import static edu.wpi.first.units.Units.Seconds;
 
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.units.measure.Distance;
 import edu.wpi.first.units.measure.Time;
-import frc.robot.lib.geometry.FieldLocation;
 import frc.robot.lib.geometry.Vector2d;
 
 public class ProjectileHelper {
-    
+
+    /** Default allowable error between the guessed and predicted time of flight, in seconds */
+    public static final double DEFAULT_TIME_TOLERANCE_SECONDS = 0.001;
+
+    /** Default maximum number of time of flight evaluations for a single solve */
+    public static final int DEFAULT_MAX_ITERATIONS = 20;
+
     /**
      * Calculates the offset vector that the robot should aim at to hit a target given the distance to the target, the robot's rotation, the time it takes for the projectile to reach the target, and the field relative velocity of the target.
      * @param distanceToTarget The distance to the target
@@ -22,81 +28,181 @@ public class ProjectileHelper {
      * @return The offset vector that the robot should aim at
      */
     public static Vector2d getShotOffsetVector(Distance distanceToTarget, Rotation2d robotTargetRotation, Function<Distance, Time> shotTimeFunction, Vector2d fieldRelitiveVelocityMetersPerSecond) {
-        // assume robot is at (0, 0) and target is at (distanceToTarget, 0)
-        Time shotTime = shotTimeFunction.apply(distanceToTarget);
-
-        // translate field relitive velocity to robot target relitive velocity
+        // solve in the robot to target frame, with the robot at (0, 0) and the target at (distanceToTarget, 0)
         Vector2d robotTargetRelitiveVelocity = fieldRelitiveVelocityMetersPerSecond.rotated(robotTargetRotation.unaryMinus());
-        double towardsTargetVelocity = robotTargetRelitiveVelocity.getX();
-        Time intialGuess = shotTime.minus(Seconds.of(distanceToTarget.in(Meters) / towardsTargetVelocity));
-
-        FieldLocation intialLocation = new FieldLocation(0, 0, Meters);
-        FieldLocation targetLocation = new FieldLocation(distanceToTarget.in(Meters), 0, Meters);
-
-        FieldLocation adjustedLocation = adjustShotLocationForVelocity(
-            intialLocation, 
-            targetLocation, 
-            robotTargetRelitiveVelocity, 
-            intialGuess, 
-            shotTimeFunction, 
-            Seconds.of(0.01), 
-            10,
-            0.8
-        );
 
-        Vector2d shotOffsetVector = new Vector2d(
-            adjustedLocation.getIn(Meters).getX(),
-            adjustedLocation.getIn(Meters).getY()
-        ).rotated(robotTargetRotation);
+        ShotSolution solution = solveMovingShot(
+            distanceToTarget.in(Meters),
+            0.0,
+            robotTargetRelitiveVelocity.getX(),
+            robotTargetRelitiveVelocity.getY(),
+            distanceMeters -> shotTimeFunction.apply(Meters.of(distanceMeters)).in(Seconds),
+            DEFAULT_TIME_TOLERANCE_SECONDS,
+            DEFAULT_MAX_ITERATIONS,
+            new ShotSolution()
+        );
 
-        return shotOffsetVector;
+        // the offset is the distance travelled during the flight, which does not depend on the frame it is solved in
+        return fieldRelitiveVelocityMetersPerSecond.scaled(solution.getTimeOfFlight());
     }
 
-    private static FieldLocation adjustShotLocationForVelocity(
-        FieldLocation initalLocation, 
-        FieldLocation targetLocation,
-        Vector2d velocityMetersPerSecond, 
-        Time intialGuess, 
-        Function<Distance, Time> shotTimeFunction, 
-        Time allowableError, 
+    /**
+     * Solves for the time of flight of a shot taken while moving. The shot inherits the robot's velocity, so the
+     * robot has to aim at the target minus the distance it drifts during the flight, and the time of flight in turn
+     * depends on the distance to that aim point. This finds the time {@code t} where
+     * {@code timeOfFlight(|target - velocity * t|) = t}.
+     *
+     * <p>The root is first bracketed, starting from the stationary time of flight, and then refined with the
+     * Illinois variant of regula falsi, a secant iteration that always keeps the root bracketed. Nothing is
+     * allocated; the result is written into {@code result}.
+     *
+     * @param targetXMeters x-coordinate of the target relative to the robot
+     * @param targetYMeters y-coordinate of the target relative to the robot
+     * @param velocityXMetersPerSecond x velocity of the robot, in the same frame as the target
+     * @param velocityYMetersPerSecond y velocity of the robot, in the same frame as the target
+     * @param timeOfFlight time of flight in seconds for a distance in meters
+     * @param toleranceSeconds allowable absolute error of the time of flight
+     * @param maxIterations maximum number of time of flight evaluations
+     * @param result the solution to write into
+     * @return {@code result}, for chaining
+     */
+    public static ShotSolution solveMovingShot(
+        double targetXMeters,
+        double targetYMeters,
+        double velocityXMetersPerSecond,
+        double velocityYMetersPerSecond,
+        DoubleUnaryOperator timeOfFlight,
+        double toleranceSeconds,
         int maxIterations,
-        double adjustmentScalar
+        ShotSolution result
     ) {
-        FieldLocation adjuctedLocation = initalLocation;
-        for (int i = 0; i < maxIterations; i++) {
-            // Calculate the adjusted location
-            adjuctedLocation = new FieldLocation(
-                velocityMetersPerSecond.scaled(intialGuess.in(Seconds)).applyVector(initalLocation.getIn(Meters)),
-                Meters
-            );
-
-            // calculate the shot time for the adjusted location
-            Time shotTime = shotTimeFunction.apply(Meters.of(adjuctedLocation.getIn(Meters).minus(targetLocation.getIn(Meters)).getNorm()));
-            Time timeError = shotTime.minus(intialGuess);
-
-            // If the time error is within the allowable error, return the adjusted location
-            if (timeError.in(Seconds) < allowableError.in(Seconds)) {
-                return adjuctedLocation;
-            }
-
-            // adjusts it by a scaler to try and reduce overshooting and oscillation around the target time
-            Time shotTimeWithAdjustmentScaler = shotTime.plus(Seconds.of((1 - adjustmentScalar) * (intialGuess.in(Seconds) - shotTime.in(Seconds))));
-            intialGuess = shotTimeWithAdjustmentScaler;
+        int iterations = 0;
+
+        // The stationary shot is always early enough: f(0) = timeOfFlight(distance) > 0
+        double low = 0.0;
+        double lowError = timeOfFlight.applyAsDouble(Math.hypot(targetXMeters, targetYMeters));
+        iterations++;
+        if (Math.abs(lowError) < toleranceSeconds) {
+            return result.set(0.0, targetXMeters, targetYMeters, iterations, true);
         }
 
+        double high = lowError;
+        double highError = timeOfFlightError(high, targetXMeters, targetYMeters, velocityXMetersPerSecond, velocityYMetersPerSecond, timeOfFlight);
+        iterations++;
 
-        System.out.println("Max iterations reached in adjustShotLocationForVelocity, returning last adjusted location");
-        return adjuctedLocation;
-    }
+        // Expand until the guess overshoots, which brackets the root
+        while (highError > 0.0 && iterations < maxIterations) {
+            if (highError < toleranceSeconds) {
+                return result.set(high, targetXMeters - velocityXMetersPerSecond * high, targetYMeters - velocityYMetersPerSecond * high, iterations, true);
+            }
+            low = high;
+            lowError = highError;
+            high *= 2.0;
+            highError = timeOfFlightError(high, targetXMeters, targetYMeters, velocityXMetersPerSecond, velocityYMetersPerSecond, timeOfFlight);
+            iterations++;
+        }
 
+        double time = high;
+        double error = highError;
+        boolean converged = Math.abs(error) < toleranceSeconds;
+        int lastRetained = 0;
+
+        while (!converged && highError <= 0.0 && iterations < maxIterations) {
+            time = (low * highError - high * lowError) / (highError - lowError);
+            error = timeOfFlightError(time, targetXMeters, targetYMeters, velocityXMetersPerSecond, velocityYMetersPerSecond, timeOfFlight);
+            iterations++;
+
+            if (Math.abs(error) < toleranceSeconds) {
+                converged = true;
+            } else if (error < 0.0) {
+                high = time;
+                highError = error;
+                // Halve the stale end point so the iteration does not stall on one side
+                if (lastRetained == -1) {
+                    lowError *= 0.5;
+                }
+                lastRetained = -1;
+            } else {
+                low = time;
+                lowError = error;
+                if (lastRetained == 1) {
+                    highError *= 0.5;
+                }
+                lastRetained = 1;
+            }
 
+            if (high - low < toleranceSeconds) {
+                converged = true;
+            }
+        }
 
+        return result.set(
+            time,
+            targetXMeters - velocityXMetersPerSecond * time,
+            targetYMeters - velocityYMetersPerSecond * time,
+            iterations,
+            converged
+        );
+    }
 
+    private static double timeOfFlightError(
+        double time,
+        double targetXMeters,
+        double targetYMeters,
+        double velocityXMetersPerSecond,
+        double velocityYMetersPerSecond,
+        DoubleUnaryOperator timeOfFlight
+    ) {
+        double aimX = targetXMeters - velocityXMetersPerSecond * time;
+        double aimY = targetYMeters - velocityYMetersPerSecond * time;
+        return timeOfFlight.applyAsDouble(Math.hypot(aimX, aimY)) - time;
+    }
 
+    /** A reusable result of {@link ProjectileHelper#solveMovingShot} */
+    public static class ShotSolution {
+        private double timeOfFlight;
+        private double aimXMeters;
+        private double aimYMeters;
+        private int iterations;
+        private boolean converged;
+
+        private ShotSolution set(double timeOfFlight, double aimXMeters, double aimYMeters, int iterations, boolean converged) {
+            this.timeOfFlight = timeOfFlight;
+            this.aimXMeters = aimXMeters;
+            this.aimYMeters = aimYMeters;
+            this.iterations = iterations;
+            this.converged = converged;
+            return this;
+        }
 
+        /** @return the time of flight of the shot in seconds */
+        public double getTimeOfFlight() {
+            return timeOfFlight;
+        }
 
+        /** @return x-coordinate of the point to aim at, relative to the robot */
+        public double getAimXMeters() {
+            return aimXMeters;
+        }
 
+        /** @return y-coordinate of the point to aim at, relative to the robot */
+        public double getAimYMeters() {
+            return aimYMeters;
+        }
 
+        /** @return the distance to the point to aim at */
+        public double getAimDistanceMeters() {
+            return Math.hypot(aimXMeters, aimYMeters);
+        }
 
+        /** @return the number of time of flight evaluations used */
+        public int getIterations() {
+            return iterations;
+        }
 
+        /** @return true if the time of flight is within tolerance */
+        public boolean isConverged() {
+            return converged;
+        }
+    }
 }
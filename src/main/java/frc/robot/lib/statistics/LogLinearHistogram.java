@@ -0,0 +1,110 @@
+package frc.robot.lib.statistics;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of non-negative long values, such as durations in nanoseconds, with a fixed relative precision in
+ * the style of HdrHistogram. Values below {@value #SUB_BUCKETS} get a bucket each; above that, every power of two
+ * is split into {@value #SUB_BUCKETS} equal buckets, so any recorded value is known to within about 3%. All buckets
+ * are allocated up front and recording is a few shifts and an increment, so it never allocates.
+ *
+ * <p>Values above the largest trackable value are counted in the last bucket, the exact maximum is kept
+ * separately.
+ */
+public class LogLinearHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts;
+    private final int maxExponent;
+    private long count = 0;
+    private long max = 0;
+
+    /**
+     * Creates a new LogLinearHistogram.
+     * @param highestTrackableValue the largest value recorded with full precision
+     */
+    public LogLinearHistogram(long highestTrackableValue) {
+        if (highestTrackableValue < SUB_BUCKETS) {
+            throw new IllegalArgumentException("Highest trackable value must be at least " + SUB_BUCKETS + ", got " + highestTrackableValue);
+        }
+        maxExponent = 63 - Long.numberOfLeadingZeros(highestTrackableValue);
+        counts = new long[SUB_BUCKETS + (maxExponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    }
+
+    /**
+     * Records a value
+     * @param value the value, negative values are recorded as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[getIndex(value)]++;
+        count++;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    private int getIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > maxExponent) {
+            return counts.length - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    /** @return the middle of the range of values that fall in a bucket */
+    private long getBucketValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long lowest = (long) (SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS) << shift;
+        return lowest + ((1L << shift) >> 1);
+    }
+
+    /**
+     * Gets the value below which a percentage of the recorded values fall
+     * @param percentile the percentile between 0 and 100
+     * @return the value at the percentile, within the histogram's precision and never above the maximum,
+     *         or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // The last bucket also holds every value past the trackable range
+                return i == counts.length - 1 ? max : Math.min(getBucketValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /** Clears all recorded values */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        max = 0;
+    }
+}
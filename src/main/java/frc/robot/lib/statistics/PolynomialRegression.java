@@ -0,0 +1,358 @@
+package frc.robot.lib.statistics;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A weighted least squares polynomial regression. The x values are centered and scaled before fitting and the
+ * system is solved with a Householder QR factorization instead of the normal equations, so fits stay accurate
+ * when the x values are large and clustered, such as encoder positions or distances around 5 m. The fitted
+ * polynomial is evaluated with Horner's method and does not allocate.
+ *
+ * <p>Points can be added one at a time; the fit is recomputed on the next prediction after a change.
+ */
+public class PolynomialRegression implements DoubleUnaryOperator {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int degree;
+
+    private double[] xData = new double[INITIAL_CAPACITY];
+    private double[] yData = new double[INITIAL_CAPACITY];
+    private double[] weights = new double[INITIAL_CAPACITY];
+    private int count = 0;
+
+    /** Coefficients in the scaled variable, lowest order first */
+    private final double[] coefficients;
+    private double center = 0;
+    private double inverseScale = 1;
+    private double residualSumOfSquares = Double.NaN;
+    private double rSquared = Double.NaN;
+    private boolean fitted = false;
+    private boolean dirty = false;
+
+    /**
+     * Creates an empty polynomial regression to be filled with {@link #addPoint(double, double)}
+     * @param degree the degree of the polynomial
+     */
+    public PolynomialRegression(int degree) {
+        if (degree < 0) {
+            throw new IllegalArgumentException("Polynomial degree must not be negative, got " + degree);
+        }
+        this.degree = degree;
+        this.coefficients = new double[degree + 1];
+    }
+
+    /**
+     * Creates a polynomial regression fit to the given data
+     * @param xData the x values
+     * @param yData the y values
+     * @param degree the degree of the polynomial
+     */
+    public PolynomialRegression(double[] xData, double[] yData, int degree) {
+        this(degree);
+        if (xData.length != yData.length) {
+            throw new IllegalArgumentException("x and y data must be the same length, got " + xData.length + " and " + yData.length);
+        }
+        for (int i = 0; i < xData.length; i++) {
+            addPoint(xData[i], yData[i]);
+        }
+        fit();
+    }
+
+    /**
+     * Creates a weighted polynomial regression fit to the given data
+     * @param xData the x values
+     * @param yData the y values
+     * @param weights the weight of each point, must be positive
+     * @param degree the degree of the polynomial
+     */
+    public PolynomialRegression(double[] xData, double[] yData, double[] weights, int degree) {
+        this(degree);
+        if (xData.length != yData.length || xData.length != weights.length) {
+            throw new IllegalArgumentException("x, y and weight data must be the same length, got " + xData.length + ", " + yData.length + " and " + weights.length);
+        }
+        for (int i = 0; i < xData.length; i++) {
+            addPoint(xData[i], yData[i], weights[i]);
+        }
+        fit();
+    }
+
+    /**
+     * Adds a data point
+     * @param x the x value
+     * @param y the y value
+     */
+    public void addPoint(double x, double y) {
+        addPoint(x, y, 1.0);
+    }
+
+    /**
+     * Adds a weighted data point
+     * @param x the x value
+     * @param y the y value
+     * @param weight the weight of the point, must be positive
+     */
+    public void addPoint(double x, double y, double weight) {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("Regression weights must be positive, got " + weight);
+        }
+        if (count == xData.length) {
+            int capacity = xData.length * 2;
+            xData = Arrays.copyOf(xData, capacity);
+            yData = Arrays.copyOf(yData, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        xData[count] = x;
+        yData[count] = y;
+        weights[count] = weight;
+        count++;
+        dirty = true;
+    }
+
+    /** Removes all data points */
+    public void clear() {
+        count = 0;
+        fitted = false;
+        dirty = false;
+        Arrays.fill(coefficients, 0);
+        residualSumOfSquares = Double.NaN;
+        rSquared = Double.NaN;
+    }
+
+    /**
+     * Fits the polynomial to the current data. Called automatically by {@link #predict(double)} after points
+     * are added, but can be called ahead of time to keep the cost out of a time critical loop.
+     */
+    public void fit() {
+        dirty = false;
+        int columns = degree + 1;
+        if (count < columns) {
+            fitted = false;
+            return;
+        }
+
+        // Center and scale x into roughly [-1, 1] to keep the Vandermonde matrix well conditioned
+        double weightSum = 0;
+        double weightedXSum = 0;
+        double weightedYSum = 0;
+        for (int i = 0; i < count; i++) {
+            weightSum += weights[i];
+            weightedXSum += weights[i] * xData[i];
+            weightedYSum += weights[i] * yData[i];
+        }
+        center = weightedXSum / weightSum;
+        double maxDeviation = 0;
+        for (int i = 0; i < count; i++) {
+            maxDeviation = Math.max(maxDeviation, Math.abs(xData[i] - center));
+        }
+        inverseScale = maxDeviation > 0 ? 1.0 / maxDeviation : 1.0;
+
+        // Row i of the system is sqrt(w_i) * [1, s_i, s_i^2, ...] = sqrt(w_i) * y_i, stored column major
+        double[] a = new double[count * columns];
+        double[] b = new double[count];
+        for (int i = 0; i < count; i++) {
+            double rootWeight = Math.sqrt(weights[i]);
+            double s = (xData[i] - center) * inverseScale;
+            double power = rootWeight;
+            for (int j = 0; j < columns; j++) {
+                a[j * count + i] = power;
+                power *= s;
+            }
+            b[i] = rootWeight * yData[i];
+        }
+
+        if (!solveLeastSquares(a, b, count, columns, coefficients)) {
+            fitted = false;
+            return;
+        }
+        fitted = true;
+
+        double weightedMeanY = weightedYSum / weightSum;
+        double totalSumOfSquares = 0;
+        double residuals = 0;
+        for (int i = 0; i < count; i++) {
+            double residual = yData[i] - predictFitted(xData[i]);
+            double deviation = yData[i] - weightedMeanY;
+            residuals += weights[i] * residual * residual;
+            totalSumOfSquares += weights[i] * deviation * deviation;
+        }
+        residualSumOfSquares = residuals;
+        rSquared = totalSumOfSquares > 0 ? 1.0 - residuals / totalSumOfSquares : 1.0;
+    }
+
+    /**
+     * Solves the least squares problem min |Ax - b| with Householder QR. {@code a} is column major with
+     * {@code rows} rows and is overwritten, as is {@code b}.
+     *
+     * @return false if the matrix is rank deficient
+     */
+    private static boolean solveLeastSquares(double[] a, double[] b, int rows, int columns, double[] solution) {
+        double[] diagonal = new double[columns];
+        double maxNorm = 0;
+
+        for (int k = 0; k < columns; k++) {
+            int columnStart = k * rows;
+
+            double norm = 0;
+            for (int i = k; i < rows; i++) {
+                norm = Math.hypot(norm, a[columnStart + i]);
+            }
+            maxNorm = Math.max(maxNorm, norm);
+            if (norm <= 1e-12 * maxNorm || norm == 0) {
+                return false;
+            }
+            if (a[columnStart + k] > 0) {
+                norm = -norm;
+            }
+
+            // Householder vector v = a_k - norm * e_k, stored in place of the column below the diagonal
+            for (int i = k; i < rows; i++) {
+                a[columnStart + i] /= -norm;
+            }
+            a[columnStart + k] += 1.0;
+
+            // Apply the reflection to the remaining columns and to b
+            for (int j = k + 1; j < columns; j++) {
+                int otherStart = j * rows;
+                double dot = 0;
+                for (int i = k; i < rows; i++) {
+                    dot += a[columnStart + i] * a[otherStart + i];
+                }
+                dot /= -a[columnStart + k];
+                for (int i = k; i < rows; i++) {
+                    a[otherStart + i] += dot * a[columnStart + i];
+                }
+            }
+            double dot = 0;
+            for (int i = k; i < rows; i++) {
+                dot += a[columnStart + i] * b[i];
+            }
+            dot /= -a[columnStart + k];
+            for (int i = k; i < rows; i++) {
+                b[i] += dot * a[columnStart + i];
+            }
+
+            diagonal[k] = norm;
+        }
+
+        // Back substitution with R, whose diagonal is stored separately
+        for (int k = columns - 1; k >= 0; k--) {
+            double sum = b[k];
+            for (int j = k + 1; j < columns; j++) {
+                sum -= a[j * rows + k] * solution[j];
+            }
+            solution[k] = sum / diagonal[k];
+        }
+        return true;
+    }
+
+    public double predict(double x) {
+        if (dirty) {
+            fit();
+        }
+        if (!fitted) {
+            return Double.NaN;
+        }
+        return predictFitted(x);
+    }
+
+    private double predictFitted(double x) {
+        double s = (x - center) * inverseScale;
+        double result = coefficients[degree];
+        for (int i = degree - 1; i >= 0; i--) {
+            result = result * s + coefficients[i];
+        }
+        return result;
+    }
+
+    @Override
+    public double applyAsDouble(double x) {
+        return predict(x);
+    }
+
+    public DoubleUnaryOperator getFunction() {
+        return this;
+    }
+
+    public int getDegree() {
+        return degree;
+    }
+
+    /**
+     * Gets the number of data points in the fit
+     * @return number of points
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Checks if there is enough data for a fit
+     * @return true if the polynomial could be fit to the current data
+     */
+    public boolean isFitted() {
+        if (dirty) {
+            fit();
+        }
+        return fitted;
+    }
+
+    /**
+     * Gets the coefficients of the polynomial in x, lowest order first. These are expanded from the centered and
+     * scaled fit and can lose precision for high degrees; {@link #predict(double)} does not use them.
+     * @return a new array of degree + 1 coefficients, or NaNs if not fitted
+     */
+    public double[] getCoefficients() {
+        double[] result = new double[degree + 1];
+        if (!isFitted()) {
+            Arrays.fill(result, Double.NaN);
+            return result;
+        }
+
+        // Expand sum c_j * (k (x - center))^j into powers of x
+        double[] shifted = new double[degree + 1];
+        double scale = 1;
+        for (int j = 0; j <= degree; j++) {
+            shifted[j] = coefficients[j] * scale;
+            scale *= inverseScale;
+        }
+        for (int j = 0; j <= degree; j++) {
+            double binomial = 1;
+            double centerPower = 1;
+            for (int i = j; i >= 0; i--) {
+                result[i] += shifted[j] * binomial * centerPower;
+                binomial = binomial * i / (j - i + 1);
+                centerPower *= -center;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the coefficient of determination of the fit
+     * @return R squared, or NaN if not fitted
+     */
+    public double getRSquared() {
+        return isFitted() ? rSquared : Double.NaN;
+    }
+
+    /**
+     * Gets the weighted sum of squared residuals of the fit
+     * @return the residual sum of squares, or NaN if not fitted
+     */
+    public double getResidualSumOfSquares() {
+        return isFitted() ? residualSumOfSquares : Double.NaN;
+    }
+
+    /**
+     * Gets the standard error of the residuals
+     * @return the residual standard error, or NaN without more points than coefficients
+     */
+    public double getResidualStandardError() {
+        if (!isFitted() || count <= degree + 1) {
+            return Double.NaN;
+        }
+        return Math.sqrt(residualSumOfSquares / (count - degree - 1));
+    }
+}
@@ -1,104 +1,251 @@
 package frc.robot.lib.statistics;
 
-import java.util.function.Function;
+import java.util.function.DoubleUnaryOperator;
 
-public class Regression {
+/**
+ * A least squares regression of one of the {@link RegressionType} forms. Every type is fit as a straight line
+ * through transformed data (for example ln(y) against x for an exponential), so the fit is kept as running means
+ * and co-moments of the transformed points. Points can be added one at a time in O(1) and the fit is refreshed
+ * immediately, which makes it usable for collecting calibration shots on the robot. Points can be weighted, for
+ * example to trust repeated calibration shots more than single ones.
+ *
+ * <p>For higher order fits use {@link PolynomialRegression}.
+ */
+public class Regression implements DoubleUnaryOperator {
 
-    private final Function<Double, Double> function;
+    private final RegressionType type;
 
+    // Running means and co-moments of the transformed data, updated with Welford's method
+    private int count = 0;
+    private double totalWeight = 0;
+    private double meanU = 0;
+    private double meanV = 0;
+    private double comomentUU = 0;
+    private double comomentVV = 0;
+    private double comomentUV = 0;
+
+    private double slope = Double.NaN;
+    private double intercept = Double.NaN;
+
+    /**
+     * Creates an empty regression to be filled with {@link #addPoint(double, double)}
+     * @param type the form of the regression
+     */
+    public Regression(RegressionType type) {
+        this.type = type;
+    }
+
+    /**
+     * Creates a regression fit to the given data
+     * @param xData the x values
+     * @param yData the y values
+     * @param type the form of the regression
+     */
     public Regression(double[] xData, double[] yData, RegressionType type) {
-        switch (type) {
-            case LINEAR:
-                function = linearRegression(xData, yData);
-                break;
-            case EXPONENTIAL:
-                function = exponentialRegression(xData, yData);
-                break;
-            case POWER:
-                function = powerRegression(xData, yData);
-                break;
-            case LOGARITHMIC:
-                function = logarithmicRegression(xData, yData);
-                break;
-            default:
-                throw new IllegalArgumentException("Unsupported regression type: " + type);
+        this(type);
+        if (xData.length != yData.length) {
+            throw new IllegalArgumentException("x and y data must be the same length, got " + xData.length + " and " + yData.length);
+        }
+        for (int i = 0; i < xData.length; i++) {
+            addPoint(xData[i], yData[i]);
+        }
+    }
+
+    /**
+     * Creates a weighted regression fit to the given data
+     * @param xData the x values
+     * @param yData the y values
+     * @param weights the weight of each point, must be positive
+     * @param type the form of the regression
+     */
+    public Regression(double[] xData, double[] yData, double[] weights, RegressionType type) {
+        this(type);
+        if (xData.length != yData.length || xData.length != weights.length) {
+            throw new IllegalArgumentException("x, y and weight data must be the same length, got " + xData.length + ", " + yData.length + " and " + weights.length);
+        }
+        for (int i = 0; i < xData.length; i++) {
+            addPoint(xData[i], yData[i], weights[i]);
         }
     }
 
-    private Function<Double, Double> linearRegression(double[] xData, double[] yData) {
-        int n = xData.length;
-        double sumX = 0, sumY = 0, sumXY = 0, sumX2 = 0;
+    /**
+     * Adds a data point and refits the regression
+     * @param x the x value
+     * @param y the y value
+     */
+    public void addPoint(double x, double y) {
+        addPoint(x, y, 1.0);
+    }
 
-        for (int i = 0; i < n; i++) {
-            sumX += xData[i];
-            sumY += yData[i];
-            sumXY += xData[i] * yData[i];
-            sumX2 += xData[i] * xData[i];
+    /**
+     * Adds a weighted data point and refits the regression
+     * @param x the x value
+     * @param y the y value
+     * @param weight the weight of the point, must be positive
+     */
+    public void addPoint(double x, double y, double weight) {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("Regression weights must be positive, got " + weight);
         }
+        double u = transformX(x);
+        double v = transformY(y);
 
-        double slope = (n * sumXY - sumX * sumY) / (n * sumX2 - sumX * sumX);
-        double intercept = (sumY - slope * sumX) / n;
+        count++;
+        totalWeight += weight;
+        double deltaU = u - meanU;
+        double deltaV = v - meanV;
+        meanU += deltaU * weight / totalWeight;
+        meanV += deltaV * weight / totalWeight;
+        comomentUU += weight * deltaU * (u - meanU);
+        comomentVV += weight * deltaV * (v - meanV);
+        comomentUV += weight * deltaU * (v - meanV);
 
-        return x -> slope * x + intercept;
+        refit();
     }
 
-    private Function<Double, Double> exponentialRegression(double[] xData, double[] yData) {
-        int n = xData.length;
-        double sumX = 0, sumLnY = 0, sumXLnY = 0, sumX2 = 0;
+    /** Removes all data points */
+    public void clear() {
+        count = 0;
+        totalWeight = 0;
+        meanU = 0;
+        meanV = 0;
+        comomentUU = 0;
+        comomentVV = 0;
+        comomentUV = 0;
+        slope = Double.NaN;
+        intercept = Double.NaN;
+    }
 
-        for (int i = 0; i < n; i++) {
-            sumX += xData[i];
-            sumLnY += Math.log(yData[i]);
-            sumXLnY += xData[i] * Math.log(yData[i]);
-            sumX2 += xData[i] * xData[i];
+    private void refit() {
+        if (count < 2 || comomentUU == 0) {
+            slope = Double.NaN;
+            intercept = Double.NaN;
+            return;
         }
+        slope = comomentUV / comomentUU;
+        intercept = meanV - slope * meanU;
+    }
 
-        double slope = (n * sumXLnY - sumX * sumLnY) / (n * sumX2 - sumX * sumX);
-        double intercept = (sumLnY - slope * sumX) / n;
-
-        return x -> Math.exp(intercept) * Math.exp(slope * x);
+    private double transformX(double x) {
+        switch (type) {
+            case POWER:
+            case LOGARITHMIC:
+                if (!(x > 0)) {
+                    throw new IllegalArgumentException(type + " regression requires positive x values, got " + x);
+                }
+                return Math.log(x);
+            default:
+                return x;
+        }
     }
 
-    private Function<Double, Double> powerRegression(double[] xData, double[] yData) {
-        int n = xData.length;
-        double sumLnX = 0, sumLnY = 0, sumLnXLnY = 0, sumLnX2 = 0;
+    private double transformY(double y) {
+        switch (type) {
+            case EXPONENTIAL:
+            case POWER:
+                if (!(y > 0)) {
+                    throw new IllegalArgumentException(type + " regression requires positive y values, got " + y);
+                }
+                return Math.log(y);
+            default:
+                return y;
+        }
+    }
 
-        for (int i = 0; i < n; i++) {
-            sumLnX += Math.log(xData[i]);
-            sumLnY += Math.log(yData[i]);
-            sumLnXLnY += Math.log(xData[i]) * Math.log(yData[i]);
-            sumLnX2 += Math.log(xData[i]) * Math.log(xData[i]);
+    public double predict(double x) {
+        switch (type) {
+            case LINEAR:
+                return slope * x + intercept;
+            case EXPONENTIAL:
+                return Math.exp(intercept + slope * x);
+            case POWER:
+                return Math.exp(intercept) * Math.pow(x, slope);
+            case LOGARITHMIC:
+                return intercept + slope * Math.log(x);
+            default:
+                throw new IllegalStateException("Unsupported regression type: " + type);
         }
+    }
+
+    @Override
+    public double applyAsDouble(double x) {
+        return predict(x);
+    }
 
-        double slope = (n * sumLnXLnY - sumLnX * sumLnY) / (n * sumLnX2 - sumLnX * sumLnX);
-        double intercept = (sumLnY - slope * sumLnX) / n;
+    public DoubleUnaryOperator getFunction() {
+        return this;
+    }
 
-        return x -> Math.exp(intercept) * Math.pow(x, slope);
+    public RegressionType getType() {
+        return type;
     }
 
-    private Function<Double, Double> logarithmicRegression(double[] xData, double[] yData) {
-        int n = xData.length;
-        double sumLnX = 0, sumY = 0, sumLnXY = 0, sumLnX2 = 0;
+    /**
+     * Checks if there is enough data for a fit
+     * @return true if at least two points with distinct x values have been added
+     */
+    public boolean isFitted() {
+        return !Double.isNaN(slope);
+    }
 
-        for (int i = 0; i < n; i++) {
-            sumLnX += Math.log(xData[i]);
-            sumY += yData[i];
-            sumLnXY += Math.log(xData[i]) * yData[i];
-            sumLnX2 += Math.log(xData[i]) * Math.log(xData[i]);
-        }
+    /**
+     * Gets the number of data points in the fit
+     * @return number of points
+     */
+    public int getCount() {
+        return count;
+    }
 
-        double slope = (n * sumLnXY - sumLnX * sumY) / (n * sumLnX2 - sumLnX * sumLnX);
-        double intercept = (sumY - slope * sumLnX) / n;
+    /**
+     * Gets the slope of the fitted line in transformed space
+     * @return the slope, or NaN if not fitted
+     */
+    public double getSlope() {
+        return slope;
+    }
 
-        return x -> intercept + slope * Math.log(x);
+    /**
+     * Gets the intercept of the fitted line in transformed space
+     * @return the intercept, or NaN if not fitted
+     */
+    public double getIntercept() {
+        return intercept;
     }
 
-    public double predict(double x) {
-        return function.apply(x);
+    /**
+     * Gets the coefficient of determination of the fit in transformed space
+     * @return R squared, between 0 and 1, or NaN if not fitted
+     */
+    public double getRSquared() {
+        if (!isFitted()) {
+            return Double.NaN;
+        }
+        if (comomentVV == 0) {
+            return 1.0;
+        }
+        return (comomentUV * comomentUV) / (comomentUU * comomentVV);
+    }
+
+    /**
+     * Gets the weighted sum of squared residuals of the fit in transformed space
+     * @return the residual sum of squares, or NaN if not fitted
+     */
+    public double getResidualSumOfSquares() {
+        if (!isFitted()) {
+            return Double.NaN;
+        }
+        return Math.max(comomentVV - comomentUV * comomentUV / comomentUU, 0.0);
     }
 
-    public Function<Double, Double> getFunction() {
-        return function;
+    /**
+     * Gets the standard error of the residuals in transformed space
+     * @return the residual standard error, or NaN with fewer than three points
+     */
+    public double getResidualStandardError() {
+        if (count < 3) {
+            return Double.NaN;
+        }
+        return Math.sqrt(getResidualSumOfSquares() / (count - 2));
     }
 
     public enum RegressionType {
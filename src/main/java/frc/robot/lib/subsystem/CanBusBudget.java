@@ -0,0 +1,187 @@
+package frc.robot.lib.subsystem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.littletonrobotics.junction.Logger;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.hardware.ParentDevice;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Keeps track of which status signals the subsystems actually read and how often. Every consumer declares the
+ * signals it needs with {@link #requireSignals}, each signal is set to the fastest rate any consumer asked for, and
+ * {@link #optimize()} then turns off every signal of the registered devices that nobody asked for.
+ *
+ * <p>The projected utilization counts every required signal as its own frame, so it is an upper bound: Phoenix
+ * packs several signals into one frame. It assumes all devices share the roboRIO's 1 Mbit/s CAN bus.
+ */
+public class CanBusBudget {
+
+    /** Default fraction of the bus the required signals may use */
+    public static final double DEFAULT_BUDGET = 0.7;
+
+    /** Bit rate of the roboRIO CAN bus */
+    private static final double BUS_BITS_PER_SECOND = 1_000_000;
+
+    /** Length of an extended data frame with 8 data bytes, including typical bit stuffing */
+    private static final double BITS_PER_FRAME = 150;
+
+    private static final CanBusBudget instance = new CanBusBudget();
+
+    private final List<ParentDevice> devices = new ArrayList<>();
+    private final Map<BaseStatusSignal, Map<String, Double>> demands = new IdentityHashMap<>();
+
+    private double budget = DEFAULT_BUDGET;
+    private boolean optimized = false;
+
+    /**
+     * Gets the budget shared by all subsystems
+     * @return the shared CanBusBudget
+     */
+    public static CanBusBudget getInstance() {
+        return instance;
+    }
+
+    /**
+     * Registers a device so that its unused signals are turned off by {@link #optimize()}
+     * @param device the device
+     */
+    public void registerDevice(ParentDevice device) {
+        for (ParentDevice registered : devices) {
+            if (registered == device) {
+                return;
+            }
+        }
+        devices.add(device);
+    }
+
+    /**
+     * Declares that a consumer reads signals at a given rate. Declaring again under the same consumer name replaces
+     * its earlier rate, and a rate of 0 withdraws the demand. Each signal is updated at the fastest rate any
+     * consumer needs.
+     *
+     * @param consumer name of the consumer, for example "Arm/Control"
+     * @param frequencyHz rate the consumer reads the signals at
+     * @param signals the signals read
+     */
+    public void requireSignals(String consumer, double frequencyHz, BaseStatusSignal... signals) {
+        if (frequencyHz < 0) {
+            throw new IllegalArgumentException("Signal frequency must not be negative, got " + frequencyHz);
+        }
+
+        for (BaseStatusSignal signal : signals) {
+            Map<String, Double> consumers = demands.computeIfAbsent(signal, s -> new HashMap<>());
+            if (frequencyHz == 0) {
+                consumers.remove(consumer);
+            } else {
+                consumers.put(consumer, frequencyHz);
+            }
+
+            double required = getRequiredFrequency(signal);
+            StatusCode status = signal.setUpdateFrequency(required);
+            if (!status.isOK()) {
+                DriverStation.reportWarning("Could not set " + signal.getName() + " to " + required + " Hz for " + consumer + ": " + status, false);
+            }
+        }
+
+        if (optimized) {
+            checkBudget();
+        }
+    }
+
+    /**
+     * Gets the rate a signal is kept at
+     * @param signal the signal
+     * @return the fastest rate any consumer needs, or 0 if no consumer reads the signal
+     */
+    public double getRequiredFrequency(BaseStatusSignal signal) {
+        Map<String, Double> consumers = demands.get(signal);
+        double frequency = 0;
+        if (consumers != null) {
+            for (double consumerFrequency : consumers.values()) {
+                frequency = Math.max(frequency, consumerFrequency);
+            }
+        }
+        return frequency;
+    }
+
+    /**
+     * Turns off every signal of the registered devices that no consumer required. Call once after all subsystems
+     * have been created; signals required later are still updated at their required rate.
+     */
+    public void optimize() {
+        if (!devices.isEmpty()) {
+            StatusCode status = ParentDevice.optimizeBusUtilizationForAll(devices.toArray(new ParentDevice[0]));
+            if (!status.isOK()) {
+                DriverStation.reportWarning("Could not optimize CAN bus utilization: " + status, false);
+            }
+        }
+        optimized = true;
+        checkBudget();
+    }
+
+    /**
+     * Sets the fraction of the bus the required signals may use before a warning is reported
+     * @param fraction budget between 0 and 1
+     */
+    public void setBudget(double fraction) {
+        if (!(fraction > 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("CAN bus budget must be in (0, 1], got " + fraction);
+        }
+        budget = fraction;
+    }
+
+    public double getBudget() {
+        return budget;
+    }
+
+    /**
+     * Gets the bus utilization the required signals would cause at most
+     * @return projected utilization between 0 and 1, above 1 if the bus is oversubscribed
+     */
+    public double getProjectedUtilization() {
+        double framesPerSecond = 0;
+        for (BaseStatusSignal signal : demands.keySet()) {
+            framesPerSecond += getRequiredFrequency(signal);
+        }
+        return framesPerSecond * BITS_PER_FRAME / BUS_BITS_PER_SECOND;
+    }
+
+    /**
+     * Checks if the projected utilization fits in the budget
+     * @return true if the required signals fit in the budget
+     */
+    public boolean isWithinBudget() {
+        return getProjectedUtilization() <= budget;
+    }
+
+    /**
+     * Gets the utilization the roboRIO measures on its CAN bus
+     * @return measured utilization between 0 and 1
+     */
+    public double getMeasuredUtilization() {
+        return RobotController.getCANStatus().percentBusUtilization;
+    }
+
+    /** Records the projected and measured utilization through Logger */
+    public void log() {
+        Logger.recordOutput("CAN/Projected Utilization", getProjectedUtilization());
+        Logger.recordOutput("CAN/Measured Utilization", getMeasuredUtilization());
+        Logger.recordOutput("CAN/Budget", budget);
+    }
+
+    private void checkBudget() {
+        double projected = getProjectedUtilization();
+        if (projected > budget) {
+            DriverStation.reportWarning(String.format("Projected CAN bus utilization %.0f%% is over the %.0f%% budget", projected * 100, budget * 100), false);
+        }
+    }
+}
@@ -4,34 +4,53 @@
 
 package frc.robot.lib.subsystem;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.littletonrobotics.junction.Logger;
 
 import com.ctre.phoenix6.hardware.TalonFX;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.lib.statistics.LogLinearHistogram;
+import frc.robot.lib.subsystem.MotorSignalLogger.SignalGroup;
 
 public class ImprovedSubsystemBase extends SubsystemBase {
 
+  /** Default number of cycles between publishing profile percentiles */
+  public static final int DEFAULT_PROFILE_PUBLISH_PERIOD = 50;
+
+  /** Longest section time tracked with full precision, one second */
+  private static final long PROFILE_MAX_NANOS = 1_000_000_000L;
+
   /** The name of the subsystem for logging purposes */
   protected final String subsystemName;
 
-  /** Map of TalonFX motors to be logged */
-  private final Map<String, TalonFX> talonFXMotors = new HashMap<>();
+  /** Batched logger for the TalonFX motors of this subsystem */
+  private final MotorSignalLogger motorLogger;
 
-  /** Creates a new ImprovedSubsystemBase. 
-   * 
+  // Section timing, published as percentiles every few cycles and then cleared
+  private final LogLinearHistogram[] profileHistograms = new LogLinearHistogram[ProfileSection.values().length];
+  private final String[][] profileKeys = new String[ProfileSection.values().length][];
+  private volatile boolean profilingEnabled = true;
+  private int profilePublishPeriod = DEFAULT_PROFILE_PUBLISH_PERIOD;
+  private int cyclesSincePublish = 0;
+  private long loggingNanos = 0;
+
+  /** Creates a new ImprovedSubsystemBase.
+   *
    * @param subsystemName The name of the subsystem for logging purposes
    */
   public ImprovedSubsystemBase(String subsystemName) {
     this.subsystemName = subsystemName;
+    this.motorLogger = new MotorSignalLogger(subsystemName);
 
+    for (ProfileSection section : ProfileSection.values()) {
+      String prefix = subsystemName + "/Profile/" + section.displayName;
+      profileHistograms[section.ordinal()] = new LogLinearHistogram(PROFILE_MAX_NANOS);
+      profileKeys[section.ordinal()] = new String[] {prefix + "/p50 Micros", prefix + "/p99 Micros", prefix + "/Max Micros"};
+    }
   }
 
   /** Adds multiple TalonFX motors to be logged
-   * 
+   *
    * @param motor The TalonFX motors to log
    * @param names The names to log the motors as
    */
@@ -42,31 +61,139 @@ public class ImprovedSubsystemBase extends SubsystemBase {
   }
 
   /** Adds a TalonFX motor to be logged
-   * 
+   *
    * @param motor The TalonFX motor to log
    * @param name  The name to log the motor as
    */
   public void addMotorLogging(TalonFX motor, String name) {
-    talonFXMotors.put(name, motor);
+    motorLogger.addMotor(motor, name);
+  }
+
+  /** Sets how often a group of motor signals is refreshed and logged
+   *
+   * @param group        The signal group to change
+   * @param cyclesPerLog Number of robot loop cycles between logs, 1 logs every cycle
+   */
+  public void setMotorLoggingPeriod(SignalGroup group, int cyclesPerLog) {
+    motorLogger.setGroupPeriod(group, cyclesPerLog);
+  }
+
+  /** Checks if a group of motor signals is logged this cycle. Valid from subsystemPeriodic() on.
+   *
+   * @param group The signal group
+   * @return True if the group's period came up this cycle
+   */
+  protected boolean isMotorLoggingDue(SignalGroup group) {
+    return motorLogger.isGroupDue(group);
+  }
+
+  /** Enables or disables timing of the subsystem's sections
+   *
+   * @param enabled True to time sections and publish their percentiles
+   */
+  public void setProfilingEnabled(boolean enabled) {
+    profilingEnabled = enabled;
+  }
+
+  /** Sets how often section percentiles are published. Each publish covers the cycles since the last one.
+   *
+   * @param cycles Number of robot loop cycles between publishes
+   */
+  public void setProfilePublishPeriod(int cycles) {
+    if (cycles < 1) {
+      throw new IllegalArgumentException("Profile publish period must be at least 1 cycle, got " + cycles);
+    }
+    profilePublishPeriod = cycles;
+  }
+
+  /** Records how long a section took. Sections timed off the main thread are recorded without locking, so
+   * their counts can be slightly off when a publish clears them at the same time.
+   *
+   * @param section    The section that ran
+   * @param startNanos System.nanoTime() when the section started
+   */
+  protected void recordSection(ProfileSection section, long startNanos) {
+    if (profilingEnabled) {
+      profileHistograms[section.ordinal()].record(System.nanoTime() - startNanos);
+    }
+  }
+
+  /** Gets the section times recorded since the last publish, in nanoseconds
+   *
+   * @param section The section
+   * @return The histogram of the section's times
+   */
+  LogLinearHistogram getProfileHistogram(ProfileSection section) {
+    return profileHistograms[section.ordinal()];
   }
 
+  /** Adds time spent logging in subsystemPeriodic() to this cycle's logging section
+   *
+   * @param startNanos System.nanoTime() when the logging started
+   */
+  protected void addLoggingTime(long startNanos) {
+    loggingNanos += System.nanoTime() - startNanos;
+  }
+
+  /** Logs the motors, runs {@link #subsystemPeriodic()} and times both. New subclasses should put their work in
+   * subsystemPeriodic() so it is profiled. Subclasses that override this instead must call super.periodic() to
+   * keep motor logging, as before.
+   */
   @Override
   public void periodic() {
+    long start = System.nanoTime();
+
     logInfo();
+    loggingNanos = System.nanoTime() - start;
+
+    subsystemPeriodic();
+    recordSection(ProfileSection.PERIODIC, start);
+    if (profilingEnabled) {
+      profileHistograms[ProfileSection.LOGGING.ordinal()].record(loggingNanos);
+    }
+
+    if (profilingEnabled && ++cyclesSincePublish >= profilePublishPeriod) {
+      cyclesSincePublish = 0;
+      publishProfile();
+    }
   }
 
+  /** Called once per scheduler run after the motors are logged, override to add periodic work */
+  protected void subsystemPeriodic() {}
+
   /** Logs motor information through Logger */
   private void logInfo() {
-    for (String key : talonFXMotors.keySet()) {
-      TalonFX motor = talonFXMotors.get(key);
-      Logger.recordOutput(subsystemName + "/" + key + "/Position", motor.getPosition().getValue());
-      Logger.recordOutput(subsystemName + "/" + key + "/Velocity", motor.getVelocity().getValue());
-      Logger.recordOutput(subsystemName + "/" + key + "/Voltage", motor.getMotorVoltage().getValue());
-      Logger.recordOutput(subsystemName + "/" + key + "/Current", motor.getStatorCurrent().getValue());
-      Logger.recordOutput(subsystemName + "/" + key + "/Is Connected", motor.isConnected());
-      Logger.recordOutput(subsystemName + "/" + key + "/Is Alive", motor.isAlive());
-      Logger.recordOutput(subsystemName + "/" + key + "/Speed", motor.get());
-      Logger.recordOutput(subsystemName + "/" + key + "/ID", motor.getDeviceID());
+    motorLogger.log();
+  }
+
+  private void publishProfile() {
+    for (int i = 0; i < profileHistograms.length; i++) {
+      LogLinearHistogram histogram = profileHistograms[i];
+      if (histogram.getCount() == 0) {
+        continue;
+      }
+      Logger.recordOutput(profileKeys[i][0], histogram.getValueAtPercentile(50) * 1e-3);
+      Logger.recordOutput(profileKeys[i][1], histogram.getValueAtPercentile(99) * 1e-3);
+      Logger.recordOutput(profileKeys[i][2], histogram.getMax() * 1e-3);
+      histogram.reset();
+    }
+  }
+
+  /** Parts of a subsystem's cycle that are timed */
+  public enum ProfileSection {
+    /** All of periodic(), including logging */
+    PERIODIC("Periodic"),
+    /** Logging motor signals */
+    LOGGING("Logging"),
+    /** Reading sensors and signals */
+    SAMPLING("Sampling"),
+    /** Running the closed loop */
+    CONTROL("Control");
+
+    private final String displayName;
+
+    private ProfileSection(String displayName) {
+      this.displayName = displayName;
     }
   }
 }
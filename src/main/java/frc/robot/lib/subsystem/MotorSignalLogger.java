@@ -0,0 +1,256 @@
+package frc.robot.lib.subsystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.littletonrobotics.junction.Logger;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.hardware.TalonFX;
+
+/**
+ * Logs TalonFX status signals through Logger. Every signal is registered once, all due signals are refreshed
+ * in a single batched {@link BaseStatusSignal#refreshAll} call per cycle, and all log keys are built when the
+ * motor is added so that {@link #log()} does not allocate.
+ */
+public class MotorSignalLogger {
+
+    /** Groups of signals that can be logged at their own rate */
+    public enum SignalGroup {
+        /** Position and velocity */
+        MOTION,
+        /** Motor voltage, stator current and duty cycle */
+        ELECTRICAL
+    }
+
+    /** Nominal rate of the main robot loop, used to turn a cycle period into a signal update frequency */
+    private static final double LOOP_FREQUENCY_HZ = 50.0;
+
+    /** Slowest update frequency Phoenix accepts for a signal that is not disabled */
+    private static final double MIN_UPDATE_FREQUENCY_HZ = 4.0;
+
+    private static final int GROUP_COUNT = SignalGroup.values().length;
+
+    private static final int POSITION = 0;
+    private static final int VELOCITY = 1;
+    private static final int VOLTAGE = 2;
+    private static final int CURRENT = 3;
+    private static final int IS_CONNECTED = 4;
+    private static final int IS_ALIVE = 5;
+    private static final int SPEED = 6;
+    private static final int ID = 7;
+    private static final String[] KEY_SUFFIXES = {
+        "/Position", "/Velocity", "/Voltage", "/Current", "/Is Connected", "/Is Alive", "/Speed", "/ID"
+    };
+
+    private final String prefix;
+    private final List<MotorEntry> motors = new ArrayList<>();
+
+    /** Number of cycles between refreshes for each signal group */
+    private final int[] groupPeriods = new int[GROUP_COUNT];
+
+    /** Name each signal group is declared under in the {@link CanBusBudget} */
+    private final String[] consumerNames = new String[GROUP_COUNT];
+
+    /** Signals to refresh for every combination of due groups, indexed by a bit mask of group ordinals */
+    private final BaseStatusSignal[][] refreshSets = new BaseStatusSignal[1 << GROUP_COUNT][];
+
+    private long cycle = 0;
+
+    /** Bit mask of the groups logged in the latest cycle */
+    private int dueMask = 0;
+
+    /**
+     * Creates a new MotorSignalLogger.
+     *
+     * @param prefix the log key prefix, usually the subsystem name
+     */
+    public MotorSignalLogger(String prefix) {
+        this.prefix = prefix;
+        Arrays.fill(groupPeriods, 1);
+        for (SignalGroup group : SignalGroup.values()) {
+            consumerNames[group.ordinal()] = prefix + "/Log/" + group;
+        }
+        rebuildRefreshSets();
+    }
+
+    /**
+     * Registers a TalonFX motor to be logged
+     *
+     * @param motor the TalonFX motor to log
+     * @param name  the name to log the motor as
+     */
+    public void addMotor(TalonFX motor, String name) {
+        for (MotorEntry entry : motors) {
+            if (entry.name.equals(name)) {
+                motors.remove(entry);
+                break;
+            }
+        }
+
+        MotorEntry entry = new MotorEntry(motor, name, prefix);
+        motors.add(entry);
+        rebuildRefreshSets();
+
+        CanBusBudget.getInstance().registerDevice(motor);
+        for (SignalGroup group : SignalGroup.values()) {
+            CanBusBudget.getInstance().requireSignals(consumerNames[group.ordinal()],
+                getUpdateFrequency(groupPeriods[group.ordinal()]), entry.getSignals(group));
+        }
+    }
+
+    /**
+     * Sets how often a signal group is refreshed and logged. A period of 1 logs the group every cycle, a period of
+     * 5 logs it every fifth cycle. The rate the group's signals are needed at is declared to the {@link CanBusBudget},
+     * which only keeps them faster if another consumer reads them.
+     *
+     * @param group        the signal group to change
+     * @param cyclesPerLog number of robot loop cycles between logs, at least 1
+     */
+    public void setGroupPeriod(SignalGroup group, int cyclesPerLog) {
+        if (cyclesPerLog < 1) {
+            throw new IllegalArgumentException("Cycles per log must be at least 1, got " + cyclesPerLog);
+        }
+        groupPeriods[group.ordinal()] = cyclesPerLog;
+
+        BaseStatusSignal[] signals = getGroupSignals(group);
+        if (signals.length > 0) {
+            CanBusBudget.getInstance().requireSignals(consumerNames[group.ordinal()], getUpdateFrequency(cyclesPerLog), signals);
+        }
+    }
+
+    /**
+     * Gets how often a signal group is refreshed and logged
+     *
+     * @param group the signal group
+     * @return number of robot loop cycles between logs
+     */
+    public int getGroupPeriod(SignalGroup group) {
+        return groupPeriods[group.ordinal()];
+    }
+
+    /** Refreshes all due signals in one batched call and records them through Logger */
+    public void log() {
+        dueMask = 0;
+        for (int group = 0; group < GROUP_COUNT; group++) {
+            if (cycle % groupPeriods[group] == 0) {
+                dueMask |= 1 << group;
+            }
+        }
+        cycle++;
+
+        BaseStatusSignal[] refreshSet = refreshSets[dueMask];
+        if (refreshSet.length > 0) {
+            BaseStatusSignal.refreshAll(refreshSet);
+        }
+
+        boolean logMotion = (dueMask & (1 << SignalGroup.MOTION.ordinal())) != 0;
+        boolean logElectrical = (dueMask & (1 << SignalGroup.ELECTRICAL.ordinal())) != 0;
+
+        for (int i = 0; i < motors.size(); i++) {
+            MotorEntry entry = motors.get(i);
+            String[] keys = entry.keys;
+
+            if (logMotion) {
+                // Logged in radians to match what recording the Angle and AngularVelocity measures produced
+                Logger.recordOutput(keys[POSITION], entry.position.getValueAsDouble() * 2 * Math.PI);
+                Logger.recordOutput(keys[VELOCITY], entry.velocity.getValueAsDouble() * 2 * Math.PI);
+            }
+            if (logElectrical) {
+                Logger.recordOutput(keys[VOLTAGE], entry.voltage.getValueAsDouble());
+                Logger.recordOutput(keys[CURRENT], entry.current.getValueAsDouble());
+                Logger.recordOutput(keys[SPEED], entry.dutyCycle.getValueAsDouble());
+            }
+            // Only a signal refreshed this cycle tells whether the motor is still connected
+            if (logMotion) {
+                Logger.recordOutput(keys[IS_CONNECTED], entry.position.getStatus().isOK());
+            } else if (logElectrical) {
+                Logger.recordOutput(keys[IS_CONNECTED], entry.voltage.getStatus().isOK());
+            }
+            Logger.recordOutput(keys[IS_ALIVE], entry.motor.isAlive());
+            Logger.recordOutput(keys[ID], entry.deviceId);
+        }
+    }
+
+    /**
+     * Checks if a signal group was logged in the latest cycle, so motors logged elsewhere can follow the same
+     * group periods
+     *
+     * @param group the signal group
+     * @return true if the group was due in the latest call to {@link #log()}
+     */
+    public boolean isGroupDue(SignalGroup group) {
+        return (dueMask & (1 << group.ordinal())) != 0;
+    }
+
+    private void rebuildRefreshSets() {
+        for (int mask = 0; mask < refreshSets.length; mask++) {
+            List<BaseStatusSignal> signals = new ArrayList<>();
+            for (SignalGroup group : SignalGroup.values()) {
+                if ((mask & (1 << group.ordinal())) != 0) {
+                    signals.addAll(Arrays.asList(getGroupSignals(group)));
+                }
+            }
+            refreshSets[mask] = signals.toArray(new BaseStatusSignal[0]);
+        }
+    }
+
+    private BaseStatusSignal[] getGroupSignals(SignalGroup group) {
+        List<BaseStatusSignal> signals = new ArrayList<>();
+        for (MotorEntry entry : motors) {
+            signals.addAll(Arrays.asList(entry.getSignals(group)));
+        }
+        return signals.toArray(new BaseStatusSignal[0]);
+    }
+
+    /**
+     * Gets the signal update frequency needed to log every given number of cycles
+     * @param cyclesPerLog number of robot loop cycles between logs
+     * @return update frequency in Hz
+     */
+    static double getUpdateFrequency(int cyclesPerLog) {
+        return Math.max(LOOP_FREQUENCY_HZ / cyclesPerLog, MIN_UPDATE_FREQUENCY_HZ);
+    }
+
+    /** Signals and precomputed log keys for a single motor */
+    private static class MotorEntry {
+        private final TalonFX motor;
+        private final String name;
+        private final int deviceId;
+        private final String[] keys = new String[KEY_SUFFIXES.length];
+
+        private final BaseStatusSignal position;
+        private final BaseStatusSignal velocity;
+        private final BaseStatusSignal voltage;
+        private final BaseStatusSignal current;
+        private final BaseStatusSignal dutyCycle;
+
+        private MotorEntry(TalonFX motor, String name, String prefix) {
+            this.motor = motor;
+            this.name = name;
+            this.deviceId = motor.getDeviceID();
+
+            for (int i = 0; i < KEY_SUFFIXES.length; i++) {
+                keys[i] = prefix + "/" + name + KEY_SUFFIXES[i];
+            }
+
+            position = motor.getPosition();
+            velocity = motor.getVelocity();
+            voltage = motor.getMotorVoltage();
+            current = motor.getStatorCurrent();
+            dutyCycle = motor.getDutyCycle();
+        }
+
+        private BaseStatusSignal[] getSignals(SignalGroup group) {
+            switch (group) {
+                case MOTION:
+                    return new BaseStatusSignal[] {position, velocity};
+                case ELECTRICAL:
+                    return new BaseStatusSignal[] {voltage, current, dutyCycle};
+                default:
+                    throw new IllegalArgumentException("Unsupported signal group: " + group);
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package frc.robot.lib.subsystem;
+
+import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.sim.TalonFXSimState;
+import com.ctre.phoenix6.unmanaged.Unmanaged;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import edu.wpi.first.wpilibj.simulation.FlywheelSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
+
+/**
+ * Drives a simulated TalonFX with a physics model of the mechanism it turns. Every update reads the voltage the
+ * motor applies from its {@link TalonFXSimState}, steps the plant in fixed sub-steps and writes the resulting
+ * rotor position and velocity back, so the closed loops of the subsystem run against the plant unchanged.
+ *
+ * <p>Plant positions are in mechanism rotations; {@code gearing} is the number of rotor rotations per mechanism
+ * rotation and should match the motor's SensorToMechanismRatio.
+ */
+public class MotorSim {
+
+    /** Default longest time the plant is stepped at once */
+    public static final double DEFAULT_SUBSTEP_PERIOD = 0.001;
+
+    /** Real time each headless cycle waits for Phoenix to apply the requests sent to the simulated devices */
+    public static final long HEADLESS_DEVICE_WAIT_MILLIS = 2;
+
+    /** How long each headless cycle keeps the simulated devices enabled for, in milliseconds */
+    private static final int HEADLESS_ENABLE_MILLIS = 100;
+
+    private final TalonFXSimState simState;
+    private final Plant plant;
+    private final double gearing;
+
+    private double substepPeriod = DEFAULT_SUBSTEP_PERIOD;
+
+    private MotorSim(TalonFX motor, Plant plant, double gearing) {
+        if (!(gearing > 0)) {
+            throw new IllegalArgumentException("Gearing must be positive, got " + gearing);
+        }
+        this.simState = motor.getSimState();
+        this.plant = plant;
+        this.gearing = gearing;
+        writeRotorState();
+    }
+
+    /**
+     * Simulates a motor turning a plain inertia
+     *
+     * @param motor the motor to drive
+     * @param gearbox the motors in the gearbox
+     * @param momentOfInertia moment of inertia of the mechanism in kg m^2
+     * @param gearing rotor rotations per mechanism rotation
+     * @return the simulation
+     */
+    public static MotorSim dcMotor(TalonFX motor, DCMotor gearbox, double momentOfInertia, double gearing) {
+        DCMotorSim sim = new DCMotorSim(LinearSystemId.createDCMotorSystem(gearbox, momentOfInertia, gearing), gearbox);
+        return new MotorSim(motor, new Plant() {
+            @Override
+            public void step(double volts, double dt) {
+                sim.setInputVoltage(volts);
+                sim.update(dt);
+            }
+
+            @Override
+            public double getPositionRotations() {
+                return sim.getAngularPositionRotations();
+            }
+
+            @Override
+            public double getVelocityRotationsPerSecond() {
+                return sim.getAngularVelocityRadPerSec() / (2 * Math.PI);
+            }
+
+            @Override
+            public double getCurrentDrawAmps() {
+                return sim.getCurrentDrawAmps();
+            }
+        }, gearing);
+    }
+
+    /**
+     * Simulates a motor spinning a flywheel or roller
+     *
+     * @param motor the motor to drive
+     * @param gearbox the motors in the gearbox
+     * @param momentOfInertia moment of inertia of the flywheel in kg m^2
+     * @param gearing rotor rotations per flywheel rotation
+     * @return the simulation
+     */
+    public static MotorSim flywheel(TalonFX motor, DCMotor gearbox, double momentOfInertia, double gearing) {
+        FlywheelSim sim = new FlywheelSim(LinearSystemId.createFlywheelSystem(gearbox, momentOfInertia, gearing), gearbox);
+        return new MotorSim(motor, new Plant() {
+            // The flywheel model only tracks velocity, so the position is integrated here
+            private double positionRotations = 0;
+
+            @Override
+            public void step(double volts, double dt) {
+                double startVelocity = getVelocityRotationsPerSecond();
+                sim.setInputVoltage(volts);
+                sim.update(dt);
+                positionRotations += 0.5 * (startVelocity + getVelocityRotationsPerSecond()) * dt;
+            }
+
+            @Override
+            public double getPositionRotations() {
+                return positionRotations;
+            }
+
+            @Override
+            public double getVelocityRotationsPerSecond() {
+                return sim.getAngularVelocityRadPerSec() / (2 * Math.PI);
+            }
+
+            @Override
+            public double getCurrentDrawAmps() {
+                return sim.getCurrentDrawAmps();
+            }
+        }, gearing);
+    }
+
+    /**
+     * Simulates a motor swinging an arm, starting at rest at its minimum angle
+     *
+     * @param motor the motor to drive
+     * @param gearbox the motors in the gearbox
+     * @param momentOfInertia moment of inertia of the arm about its pivot in kg m^2
+     * @param gearing rotor rotations per arm rotation
+     * @param armLengthMeters length of the arm
+     * @param minAngleRadians lowest angle the arm can reach, measured from horizontal
+     * @param maxAngleRadians highest angle the arm can reach, measured from horizontal
+     * @param simulateGravity true to pull the arm down with gravity
+     * @return the simulation
+     */
+    public static MotorSim arm(TalonFX motor, DCMotor gearbox, double momentOfInertia, double gearing, double armLengthMeters,
+            double minAngleRadians, double maxAngleRadians, boolean simulateGravity) {
+        SingleJointedArmSim sim = new SingleJointedArmSim(gearbox, gearing, momentOfInertia, armLengthMeters,
+            minAngleRadians, maxAngleRadians, simulateGravity, minAngleRadians);
+        return new MotorSim(motor, new Plant() {
+            @Override
+            public void step(double volts, double dt) {
+                sim.setInputVoltage(volts);
+                sim.update(dt);
+            }
+
+            @Override
+            public double getPositionRotations() {
+                return sim.getAngleRads() / (2 * Math.PI);
+            }
+
+            @Override
+            public double getVelocityRotationsPerSecond() {
+                return sim.getVelocityRadPerSec() / (2 * Math.PI);
+            }
+
+            @Override
+            public double getCurrentDrawAmps() {
+                return sim.getCurrentDrawAmps();
+            }
+        }, gearing);
+    }
+
+    /**
+     * Advances the simulation, stepping the plant in sub-steps no longer than the sub-step period
+     * @param dtSeconds time to advance by
+     */
+    public void update(double dtSeconds) {
+        if (!(dtSeconds > 0)) {
+            return;
+        }
+
+        simState.setSupplyVoltage(RobotController.getBatteryVoltage());
+
+        int substeps = (int) Math.ceil(dtSeconds / substepPeriod);
+        double h = dtSeconds / substeps;
+        for (int i = 0; i < substeps; i++) {
+            plant.step(simState.getMotorVoltage(), h);
+            writeRotorState();
+        }
+    }
+
+    private void writeRotorState() {
+        simState.setRawRotorPosition(plant.getPositionRotations() * gearing);
+        simState.setRotorVelocity(plant.getVelocityRotationsPerSecond() * gearing);
+    }
+
+    /**
+     * Sets the longest time the plant is stepped at once. Shorter sub-steps follow fast dynamics more closely.
+     * @param periodSeconds sub-step period in seconds
+     */
+    public void setSubstepPeriod(double periodSeconds) {
+        if (!(periodSeconds > 0)) {
+            throw new IllegalArgumentException("Sub-step period must be positive, got " + periodSeconds);
+        }
+        substepPeriod = periodSeconds;
+    }
+
+    public double getSubstepPeriod() {
+        return substepPeriod;
+    }
+
+    /**
+     * Gets the simulated mechanism position
+     * @return position in mechanism rotations
+     */
+    public double getMechanismPositionRotations() {
+        return plant.getPositionRotations();
+    }
+
+    /**
+     * Gets the simulated mechanism velocity
+     * @return velocity in mechanism rotations per second
+     */
+    public double getMechanismVelocityRotationsPerSecond() {
+        return plant.getVelocityRotationsPerSecond();
+    }
+
+    /**
+     * Gets the current the simulated motors draw
+     * @return current in amps
+     */
+    public double getCurrentDrawAmps() {
+        return plant.getCurrentDrawAmps();
+    }
+
+    /**
+     * Runs subsystems headless for a stretch of simulated time. Robot time is paused and stepped by hand, and each
+     * cycle feeds the Phoenix enable, runs every subsystem's periodic and simulationPeriodic back to back, then
+     * waits {@link #HEADLESS_DEVICE_WAIT_MILLIS}. The wait is needed because Phoenix applies requests to simulated
+     * devices on its own thread in real time and has no way to step it by hand. A run therefore takes at least
+     * that wait per cycle of real time, and a heavily loaded host can still fall behind it. Robot timing is
+     * resumed afterwards unless it was already paused when the run started.
+     *
+     * @param durationSeconds simulated time to run for
+     * @param periodSeconds length of one cycle, usually {@link MotorSubsystem#DEFAULT_CONTROL_PERIOD}
+     * @param subsystems the subsystems to run
+     */
+    public static void runHeadless(double durationSeconds, double periodSeconds, MotorSubsystem... subsystems) {
+        if (!(periodSeconds > 0)) {
+            throw new IllegalArgumentException("Cycle period must be positive, got " + periodSeconds);
+        }
+
+        boolean wasPaused = SimHooks.isTimingPaused();
+        SimHooks.pauseTiming();
+        try {
+            long cycles = Math.round(durationSeconds / periodSeconds);
+            for (long cycle = 0; cycle < cycles; cycle++) {
+                Unmanaged.feedEnable(HEADLESS_ENABLE_MILLIS);
+                for (MotorSubsystem subsystem : subsystems) {
+                    subsystem.periodic();
+                }
+                for (MotorSubsystem subsystem : subsystems) {
+                    subsystem.simulationPeriodic();
+                }
+                SimHooks.stepTiming(periodSeconds);
+                Thread.sleep(HEADLESS_DEVICE_WAIT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!wasPaused) {
+                SimHooks.resumeTiming();
+            }
+        }
+    }
+
+    /** Physics model of the mechanism, in mechanism rotations */
+    private interface Plant {
+        void step(double volts, double dt);
+
+        double getPositionRotations();
+
+        double getVelocityRotationsPerSecond();
+
+        double getCurrentDrawAmps();
+    }
+}
@@ -0,0 +1,79 @@
+package frc.robot.lib.subsystem;
+
+/**
+ * The state of a motor sampled in one batched refresh. All values come from the same refresh, so control code,
+ * logging and user code reading one snapshot see a consistent state of the motor. Snapshots are immutable and
+ * can be handed across threads.
+ */
+public final class MotorSnapshot {
+
+    private final double timestampSeconds;
+    private final double positionRotations;
+    private final double velocityRotationsPerSecond;
+    private final double voltage;
+    private final double statorCurrent;
+    private final double dutyCycle;
+    private final boolean connected;
+
+    /**
+     * Creates a new MotorSnapshot.
+     *
+     * @param timestampSeconds time the position was measured at, in the Phoenix timebase
+     * @param positionRotations position in rotations
+     * @param velocityRotationsPerSecond velocity in rotations per second
+     * @param voltage applied motor voltage in volts
+     * @param statorCurrent stator current in amps
+     * @param dutyCycle applied duty cycle between -1 and 1
+     * @param connected true if every signal was refreshed successfully
+     */
+    public MotorSnapshot(double timestampSeconds, double positionRotations, double velocityRotationsPerSecond, double voltage, double statorCurrent, double dutyCycle, boolean connected) {
+        this.timestampSeconds = timestampSeconds;
+        this.positionRotations = positionRotations;
+        this.velocityRotationsPerSecond = velocityRotationsPerSecond;
+        this.voltage = voltage;
+        this.statorCurrent = statorCurrent;
+        this.dutyCycle = dutyCycle;
+        this.connected = connected;
+    }
+
+    /**
+     * Gets when the sample was measured
+     * @return timestamp in seconds, comparable with {@code Utils.getCurrentTimeSeconds()}
+     */
+    public double getTimestampSeconds() {
+        return timestampSeconds;
+    }
+
+    public double getPositionRotations() {
+        return positionRotations;
+    }
+
+    public double getVelocityRotationsPerSecond() {
+        return velocityRotationsPerSecond;
+    }
+
+    public double getVoltage() {
+        return voltage;
+    }
+
+    public double getStatorCurrent() {
+        return statorCurrent;
+    }
+
+    public double getDutyCycle() {
+        return dutyCycle;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Extrapolates the position to another time with the sampled velocity, for latency compensation
+     * @param timeSeconds time in the same timebase as the timestamp
+     * @return estimated position in rotations at that time
+     */
+    public double getPositionRotationsAt(double timeSeconds) {
+        return positionRotations + velocityRotationsPerSecond * (timeSeconds - timestampSeconds);
+    }
+}
@@ -1,17 +1,94 @@
 package frc.robot.lib.subsystem;
 
+import static edu.wpi.first.units.Units.Rotations;
+
+import org.littletonrobotics.junction.Logger;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.ControlRequest;
+import com.ctre.phoenix6.controls.DutyCycleOut;
+import com.ctre.phoenix6.controls.NeutralOut;
+import com.ctre.phoenix6.controls.VoltageOut;
 import com.ctre.phoenix6.hardware.TalonFX;
 
+import edu.wpi.first.math.system.plant.DCMotor;
+
 import edu.wpi.first.units.measure.Angle;
+import edu.wpi.first.units.measure.AngularVelocity;
+import edu.wpi.first.units.measure.Current;
+import edu.wpi.first.units.measure.Voltage;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.lib.subsystem.MotorSignalLogger.SignalGroup;
 
 public class MotorSubsystem extends ImprovedSubsystemBase {
 
+    /** Period of the main robot loop that the closed loop runs in by default */
+    public static final double DEFAULT_CONTROL_PERIOD = 0.02;
+
+    /** Default smallest output change that is sent to the motor */
+    public static final double DEFAULT_OUTPUT_EPSILON = 1e-4;
+
+    /** Default number of suppressed requests after which the output is sent anyway */
+    public static final int DEFAULT_FORCED_REFRESH_CYCLES = 10;
+
     protected final TalonFX motor;
 
-    protected boolean isStopped = false;
-    
+    // Signals sampled together into one snapshot per control cycle
+    private final StatusSignal<Angle> positionSignal;
+    private final StatusSignal<AngularVelocity> velocitySignal;
+    private final StatusSignal<Voltage> voltageSignal;
+    private final StatusSignal<Current> currentSignal;
+    private final StatusSignal<Double> dutyCycleSignal;
+    private final BaseStatusSignal[] snapshotSignals;
+    private final BaseStatusSignal[] electricalSignals;
+    private volatile MotorSnapshot snapshot;
+    private final String[] snapshotKeys;
+    private final String aliveKey;
+    private final String idKey;
+    private final String electricalConsumerName;
+
+    protected volatile boolean isStopped = false;
+
+    /** Runs the closed loop off the main loop when the control thread is enabled */
+    private Notifier controlNotifier;
+    private volatile boolean controlThreadEnabled = false;
+    private double controlPeriod = DEFAULT_CONTROL_PERIOD;
+
+    // Loop timing, written only by the control thread and published from subsystemPeriodic()
+    private long lastControlTimestampMicros = 0;
+    private volatile double lastControlPeriodSeconds = 0;
+    private volatile double maxControlJitterSeconds = 0;
+    private volatile double averageControlJitterSeconds = 0;
+    private final String controlPeriodKey;
+    private final String maxControlJitterKey;
+    private final String averageControlJitterKey;
+    private final String controlConsumerName;
+
+    // Control requests reused for every output, so sending does not allocate
+    private final DutyCycleOut dutyCycleRequest = new DutyCycleOut(0);
+    private final VoltageOut voltageRequest = new VoltageOut(0);
+    private final NeutralOut neutralRequest = new NeutralOut();
+
+    // Last sent request, only touched by whichever thread runs the closed loop
+    private ControlRequest lastRequest = null;
+    private double lastRequestValue = 0;
+    private int cyclesSinceSent = 0;
+    private volatile double outputEpsilon = DEFAULT_OUTPUT_EPSILON;
+    private volatile int forcedRefreshCycles = DEFAULT_FORCED_REFRESH_CYCLES;
+    private volatile long sentRequests = 0;
+    private volatile long suppressedRequests = 0;
+    private final String sentRequestsKey;
+    private final String suppressedRequestsKey;
+
+    /** Physics model driving the motor in simulation, or null */
+    private MotorSim simulation = null;
+    private double lastSimulationTimestamp = Double.NaN;
+
     /**
      * Creates a new MotorSubsystem.
      * 
@@ -25,7 +102,35 @@ public class MotorSubsystem extends ImprovedSubsystemBase {
 
         this.motor = new TalonFX(motorID);
         motor.getConfigurator().apply(config);
-        addMotorLogging(motor, motorName);
+
+        positionSignal = motor.getPosition();
+        velocitySignal = motor.getVelocity();
+        voltageSignal = motor.getMotorVoltage();
+        currentSignal = motor.getStatorCurrent();
+        dutyCycleSignal = motor.getDutyCycle();
+        snapshotSignals = new BaseStatusSignal[] {positionSignal, velocitySignal, voltageSignal, currentSignal, dutyCycleSignal};
+        electricalSignals = new BaseStatusSignal[] {voltageSignal, currentSignal, dutyCycleSignal};
+
+        // Same keys MotorSignalLogger uses, so logs of the motor keep their names
+        String motorPrefix = subsystemName + "/" + motorName;
+        snapshotKeys = new String[] {motorPrefix + "/Position", motorPrefix + "/Velocity", motorPrefix + "/Voltage",
+            motorPrefix + "/Current", motorPrefix + "/Speed", motorPrefix + "/Is Connected"};
+        aliveKey = motorPrefix + "/Is Alive";
+        idKey = motorPrefix + "/ID";
+
+        controlConsumerName = subsystemName + "/Control";
+        electricalConsumerName = subsystemName + "/Log/" + motorName;
+        CanBusBudget.getInstance().registerDevice(motor);
+        CanBusBudget.getInstance().requireSignals(electricalConsumerName, MotorSignalLogger.getUpdateFrequency(1), electricalSignals);
+        requireControlSignals();
+
+        sampleMotor();
+
+        controlPeriodKey = subsystemName + "/Control/Period";
+        maxControlJitterKey = subsystemName + "/Control/Max Jitter";
+        averageControlJitterKey = subsystemName + "/Control/Average Jitter";
+        sentRequestsKey = subsystemName + "/Control/Sent Requests";
+        suppressedRequestsKey = subsystemName + "/Control/Suppressed Requests";
     }
 
     /** Stops the motor */
@@ -55,10 +160,40 @@ public class MotorSubsystem extends ImprovedSubsystemBase {
     }
 
     /** Gets the current position of the motor 
-     * @return current position of the motor as an Angle
+     * @return current position of the motor as an Angle, from the latest snapshot
      */
     public Angle getCurrentPosition() {
-        return motor.getPosition().getValue();
+        return Rotations.of(snapshot.getPositionRotations());
+    }
+
+    /**
+     * Gets the motor state sampled at the start of the latest control cycle. Control, logging and callers all
+     * read this same sample instead of refreshing signals on their own.
+     *
+     * @return the latest snapshot
+     */
+    public MotorSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Refreshes all motor signals in one batched call and publishes them as a new snapshot. Runs at the start of
+     * every control cycle, on whichever thread runs the closed loop.
+     *
+     * @return the new snapshot
+     */
+    protected MotorSnapshot sampleMotor() {
+        boolean connected = BaseStatusSignal.refreshAll(snapshotSignals).isOK();
+        MotorSnapshot sample = new MotorSnapshot(
+            positionSignal.getTimestamp().getTime(),
+            positionSignal.getValueAsDouble(),
+            velocitySignal.getValueAsDouble(),
+            voltageSignal.getValueAsDouble(),
+            currentSignal.getValueAsDouble(),
+            dutyCycleSignal.getValueAsDouble(),
+            connected);
+        snapshot = sample;
+        return sample;
     }
 
     /** Command to stop the motor 
@@ -80,12 +215,307 @@ public class MotorSubsystem extends ImprovedSubsystemBase {
      * @param speed speed to set the motor to
      */
     protected void setMotorSpeed(double speed) {
-        motor.set(speed);
+        sendRequest(dutyCycleRequest.withOutput(speed), speed);
+    }
+
+    /** Sets the motor voltage
+     * @param volts voltage to set the motor to
+     */
+    protected void setMotorVoltage(double volts) {
+        sendRequest(voltageRequest.withOutput(volts), volts);
+    }
+
+    /** Puts the motor in neutral, coasting or braking depending on its configuration */
+    protected void setMotorNeutral() {
+        sendRequest(neutralRequest, 0);
+    }
+
+    /**
+     * Sends a control request to the motor unless it would repeat the last one. A request is suppressed when it
+     * is the same request object as last time and its value moved by less than the output epsilon, but never for
+     * more than the forced refresh interval in a row. Requests should be preallocated and reused so that
+     * repeats can be recognized.
+     *
+     * @param request the request, already holding its new value
+     * @param value the value the request was set to, used to detect changes
+     */
+    protected void sendRequest(ControlRequest request, double value) {
+        if (request == lastRequest
+                && Math.abs(value - lastRequestValue) < outputEpsilon
+                && cyclesSinceSent < forcedRefreshCycles) {
+            cyclesSinceSent++;
+            suppressedRequests++;
+            return;
+        }
+
+        motor.setControl(request);
+        lastRequest = request;
+        lastRequestValue = value;
+        cyclesSinceSent = 0;
+        sentRequests++;
+    }
+
+    /**
+     * Sets the smallest output change that is sent to the motor, 0 sends every change
+     * @param epsilon output change in the units of the request
+     */
+    public void setOutputEpsilon(double epsilon) {
+        if (!(epsilon >= 0)) {
+            throw new IllegalArgumentException("Output epsilon must not be negative, got " + epsilon);
+        }
+        outputEpsilon = epsilon;
+    }
+
+    /**
+     * Sets how many requests in a row may be suppressed before the output is sent anyway
+     * @param cycles number of suppressed requests, 0 sends every request
+     */
+    public void setForcedRefreshCycles(int cycles) {
+        if (cycles < 0) {
+            throw new IllegalArgumentException("Forced refresh cycles must not be negative, got " + cycles);
+        }
+        forcedRefreshCycles = cycles;
+    }
+
+    /**
+     * Gets how many control requests were sent to the motor
+     * @return number of sent requests
+     */
+    public long getSentRequests() {
+        return sentRequests;
+    }
+
+    /**
+     * Gets how many control requests were suppressed as repeats
+     * @return number of suppressed requests
+     */
+    public long getSuppressedRequests() {
+        return suppressedRequests;
+    }
+
+    /**
+     * Runs the closed loop off the main robot loop on its own fixed rate thread. Setpoints are still set from
+     * the main thread, so subclasses must only hand them across through volatile fields holding immutable values.
+     * 
+     * @param frequencyHz rate to run the closed loop at, for example 250
+     */
+    public void enableControlThread(double frequencyHz) {
+        if (frequencyHz <= 0) {
+            throw new IllegalArgumentException("Control frequency must be positive, got " + frequencyHz);
+        }
+        disableControlThread();
+
+        controlPeriod = 1.0 / frequencyHz;
+        onControlPeriodChanged(controlPeriod);
+        requireControlSignals();
+
+        lastControlTimestampMicros = 0;
+        maxControlJitterSeconds = 0;
+        averageControlJitterSeconds = 0;
+
+        controlNotifier = new Notifier(this::runControlThreadCycle);
+        controlNotifier.setName(subsystemName + " Control");
+        controlThreadEnabled = true;
+        controlNotifier.startPeriodic(controlPeriod);
+    }
+
+    /** Stops the control thread and moves the closed loop back into subsystemPeriodic() */
+    public void disableControlThread() {
+        if (controlNotifier == null) {
+            return;
+        }
+
+        controlNotifier.stop();
+        controlNotifier.close();
+        controlNotifier = null;
+        controlThreadEnabled = false;
+
+        controlPeriod = DEFAULT_CONTROL_PERIOD;
+        onControlPeriodChanged(controlPeriod);
+        requireControlSignals();
+    }
+
+    /**
+     * Checks if the closed loop is running on its own thread
+     * @return true if the control thread is enabled
+     */
+    public boolean isControlThreadEnabled() {
+        return controlThreadEnabled;
+    }
+
+    /**
+     * Gets the period the closed loop is expected to run at
+     * @return control period in seconds
+     */
+    public double getControlPeriod() {
+        return controlPeriod;
+    }
+
+    /**
+     * Runs one cycle of the closed loop. Called from subsystemPeriodic() or, when enabled, from the control thread.
+     */
+    protected void runControlLoop() {}
+
+    /**
+     * Called when the closed loop period changes so subclasses can rebuild period dependent controllers.
+     * The control thread is not running while this is called.
+     * 
+     * @param periodSeconds new control period in seconds
+     */
+    protected void onControlPeriodChanged(double periodSeconds) {}
+
+    /** Declares the signals the closed loop reads, at the rate it runs at */
+    private void requireControlSignals() {
+        CanBusBudget.getInstance().requireSignals(controlConsumerName, 1.0 / controlPeriod, positionSignal, velocitySignal);
+    }
+
+    /**
+     * Drives the motor with a physics model in simulation. The model is stepped from simulationPeriodic().
+     * @param sim the simulation, or null to stop simulating
+     */
+    public void setSimulation(MotorSim sim) {
+        simulation = sim;
+        lastSimulationTimestamp = Double.NaN;
+    }
+
+    public MotorSim getSimulation() {
+        return simulation;
+    }
+
+    /**
+     * Simulates the motor turning a plain inertia
+     *
+     * @param gearbox the motors in the gearbox
+     * @param momentOfInertia moment of inertia of the mechanism in kg m^2
+     * @param gearing rotor rotations per mechanism rotation
+     * @return the simulation, to tune its sub-step period
+     */
+    public MotorSim simulateDCMotor(DCMotor gearbox, double momentOfInertia, double gearing) {
+        setSimulation(MotorSim.dcMotor(motor, gearbox, momentOfInertia, gearing));
+        return simulation;
+    }
+
+    /**
+     * Simulates the motor spinning a flywheel or roller
+     *
+     * @param gearbox the motors in the gearbox
+     * @param momentOfInertia moment of inertia of the flywheel in kg m^2
+     * @param gearing rotor rotations per flywheel rotation
+     * @return the simulation, to tune its sub-step period
+     */
+    public MotorSim simulateFlywheel(DCMotor gearbox, double momentOfInertia, double gearing) {
+        setSimulation(MotorSim.flywheel(motor, gearbox, momentOfInertia, gearing));
+        return simulation;
+    }
+
+    /**
+     * Simulates the motor swinging an arm
+     *
+     * @param gearbox the motors in the gearbox
+     * @param momentOfInertia moment of inertia of the arm about its pivot in kg m^2
+     * @param gearing rotor rotations per arm rotation
+     * @param armLengthMeters length of the arm
+     * @param minAngleRadians lowest angle the arm can reach, where it starts
+     * @param maxAngleRadians highest angle the arm can reach
+     * @return the simulation, to tune its sub-step period
+     */
+    public MotorSim simulateArm(DCMotor gearbox, double momentOfInertia, double gearing, double armLengthMeters, double minAngleRadians, double maxAngleRadians) {
+        setSimulation(MotorSim.arm(motor, gearbox, momentOfInertia, gearing, armLengthMeters, minAngleRadians, maxAngleRadians, true));
+        return simulation;
+    }
+
+    /**
+     * Sets how often a group of motor signals is logged, for the subsystem's own motor as well. The motor is still
+     * sampled every control cycle, since the closed loop reads it.
+     *
+     * @param group        the signal group to change
+     * @param cyclesPerLog number of robot loop cycles between logs, 1 logs every cycle
+     */
+    @Override
+    public void setMotorLoggingPeriod(SignalGroup group, int cyclesPerLog) {
+        super.setMotorLoggingPeriod(group, cyclesPerLog);
+        if (group == SignalGroup.ELECTRICAL) {
+            // The closed loop only reads motion signals, so logging alone decides how fast these are needed
+            CanBusBudget.getInstance().requireSignals(electricalConsumerName, MotorSignalLogger.getUpdateFrequency(cyclesPerLog), electricalSignals);
+        }
+    }
+
+    private void logSnapshot(MotorSnapshot sample) {
+        boolean logMotion = isMotorLoggingDue(SignalGroup.MOTION);
+        boolean logElectrical = isMotorLoggingDue(SignalGroup.ELECTRICAL);
+
+        if (logMotion) {
+            // Logged in radians to match MotorSignalLogger
+            Logger.recordOutput(snapshotKeys[0], sample.getPositionRotations() * 2 * Math.PI);
+            Logger.recordOutput(snapshotKeys[1], sample.getVelocityRotationsPerSecond() * 2 * Math.PI);
+        }
+        if (logElectrical) {
+            Logger.recordOutput(snapshotKeys[2], sample.getVoltage());
+            Logger.recordOutput(snapshotKeys[3], sample.getStatorCurrent());
+            Logger.recordOutput(snapshotKeys[4], sample.getDutyCycle());
+        }
+        if (logMotion || logElectrical) {
+            Logger.recordOutput(snapshotKeys[5], sample.isConnected());
+        }
+        Logger.recordOutput(aliveKey, motor.isAlive());
+        Logger.recordOutput(idKey, motor.getDeviceID());
+    }
+
+    /** Samples the motor and runs the closed loop, timing both */
+    private void runProfiledControlCycle() {
+        long start = System.nanoTime();
+        sampleMotor();
+        recordSection(ProfileSection.SAMPLING, start);
+
+        long controlStart = System.nanoTime();
+        runControlLoop();
+        recordSection(ProfileSection.CONTROL, controlStart);
+    }
+
+    private void runControlThreadCycle() {
+        long now = RobotController.getFPGATime();
+        if (lastControlTimestampMicros != 0) {
+            double period = (now - lastControlTimestampMicros) * 1e-6;
+            double jitter = Math.abs(period - controlPeriod);
+
+            lastControlPeriodSeconds = period;
+            maxControlJitterSeconds = Math.max(maxControlJitterSeconds, jitter);
+            averageControlJitterSeconds += 0.01 * (jitter - averageControlJitterSeconds);
+        }
+        lastControlTimestampMicros = now;
+
+        runProfiledControlCycle();
     }
 
     @Override
-    public void periodic() {
-        super.periodic();
+    protected void subsystemPeriodic() {
+        super.subsystemPeriodic();
+
+        if (controlThreadEnabled) {
+            Logger.recordOutput(controlPeriodKey, lastControlPeriodSeconds);
+            Logger.recordOutput(maxControlJitterKey, maxControlJitterSeconds);
+            Logger.recordOutput(averageControlJitterKey, averageControlJitterSeconds);
+        } else {
+            runProfiledControlCycle();
+        }
+
+        long logStart = System.nanoTime();
+        logSnapshot(snapshot);
+        addLoggingTime(logStart);
+
+        Logger.recordOutput(sentRequestsKey, sentRequests);
+        Logger.recordOutput(suppressedRequestsKey, suppressedRequests);
     }
 
+    @Override
+    public void simulationPeriodic() {
+        if (simulation == null) {
+            return;
+        }
+
+        double now = Timer.getFPGATimestamp();
+        double dt = Double.isNaN(lastSimulationTimestamp) ? DEFAULT_CONTROL_PERIOD : now - lastSimulationTimestamp;
+        lastSimulationTimestamp = now;
+        simulation.update(dt);
+    }
 }
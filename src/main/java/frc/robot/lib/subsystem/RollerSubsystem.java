@@ -1,41 +1,143 @@
 package frc.robot.lib.subsystem;
 
+import org.littletonrobotics.junction.Logger;
+
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.configs.Slot0Configs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.VelocityVoltage;
 
 import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.trajectory.TrapezoidProfile.Constraints;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.lib.util.FFConfiguration;
 import frc.robot.lib.util.PIDConfiguration;
 
+/**
+ * A roller driven at a target speed. Created without a feedforward, the target is a duty cycle sent open loop. Created with an
+ * {@link FFConfiguration}, the roller runs in velocity mode: the target is in rotations per second, the loop is
+ * closed on the measured motor velocity with kS/kV/kA feedforward in volts, and it can run on the TalonFX with
+ * velocity requests.
+ */
 public class RollerSubsystem extends MotorSubsystem {
 
-    private final ProfiledPIDController pid;
+    /** Default distance from the target velocity that counts as spun up, in rotations per second */
+    public static final double DEFAULT_SPIN_UP_TOLERANCE = 1.0;
+
+    private final PIDConfiguration pidConfig;
+    private final FFConfiguration ffConfig;
+    private ProfiledPIDController pid;
     private final double defaultRunSpeed;
 
-    private double targetSpeed = 0;
+    private volatile double targetSpeed = 0;
+
+    private final VelocityVoltage velocityRequest = new VelocityVoltage(0);
+    private volatile boolean onboardControl = false;
+
+    // Only touched by the thread running the closed loop
+    private boolean rioLoopActive = false;
+    private boolean wasRunning = false;
+
+    // Spin up timing, measured from a start or a change of the target until the velocity is within tolerance
+    private volatile double spinUpTolerance = DEFAULT_SPIN_UP_TOLERANCE;
+    private volatile double spinUpStartTime = Double.NaN;
+    private volatile double lastSpinUpTime = Double.NaN;
+    private final String spinUpTimeKey;
 
     /**
      * Creates a new RollerSubsystem.
      * @param subsystemName subsystem name for logging purposes
-     * @param pidConfig configuration for the Profiled PID controller
+     * @param pidConfig configuration for the Profiled PID controller, unused until a feedforward is given
      * @param servoID motor CAN ID for TalonFX
      * @param config TalonFXConfiguration for motor
-     * @param defaultRunSpeed default speed to run the roller at
+     * @param defaultRunSpeed default duty cycle to run the roller at
      */
     public RollerSubsystem(String subsystemName, PIDConfiguration pidConfig, int servoID, TalonFXConfiguration config, double defaultRunSpeed) {
+        this(subsystemName, pidConfig, null, servoID, config, defaultRunSpeed);
+    }
+
+    /**
+     * Creates a new RollerSubsystem in velocity mode.
+     * @param subsystemName subsystem name for logging purposes
+     * @param pidConfig configuration for the velocity loop, in volts per rotation per second; the profile
+     *                  constraints limit acceleration and jerk of the velocity setpoint
+     * @param ffConfig feedforward for the velocity loop, in volts
+     * @param servoID motor CAN ID for TalonFX
+     * @param config TalonFXConfiguration for motor
+     * @param defaultRunVelocity default velocity to run the roller at, in rotations per second
+     */
+    public RollerSubsystem(String subsystemName, PIDConfiguration pidConfig, FFConfiguration ffConfig, int servoID, TalonFXConfiguration config, double defaultRunVelocity) {
         super(subsystemName, servoID, "RollerMotor", config);
 
-        this.pid = new ProfiledPIDController(pidConfig.kP, pidConfig.kI, pidConfig.kD, 
+        this.pidConfig = pidConfig;
+        this.ffConfig = ffConfig;
+        this.pid = new ProfiledPIDController(pidConfig.kP, pidConfig.kI, pidConfig.kD,
             new Constraints(pidConfig.maxVel, pidConfig.maxAcc));
 
-        this.defaultRunSpeed = defaultRunSpeed;
+        this.defaultRunSpeed = defaultRunVelocity;
+        this.spinUpTimeKey = subsystemName + "/Spin Up Time";
+    }
+
+    /**
+     * Checks if the roller is closing its loop on measured velocity
+     * @return true if the roller was created with a feedforward
+     */
+    public boolean isVelocityMode() {
+        return ffConfig != null;
+    }
+
+    /**
+     * Moves the velocity loop onto the TalonFX. The PID and feedforward gains are written into slot 0 and the
+     * roller is driven with velocity requests. Only available in velocity mode. If the configs can not be
+     * applied the roboRIO side controller stays in use.
+     *
+     * @return true if the loop now runs on the TalonFX
+     */
+    public boolean enableOnboardControl() {
+        if (!isVelocityMode()) {
+            throw new IllegalStateException(subsystemName + " needs a feedforward configuration for onboard velocity control");
+        }
+
+        Slot0Configs slotConfig = new Slot0Configs()
+            .withKP(pidConfig.kP)
+            .withKI(pidConfig.kI)
+            .withKD(pidConfig.kD)
+            .withKS(ffConfig.kS)
+            .withKV(ffConfig.kV)
+            .withKA(ffConfig.kA);
+        StatusCode status = motor.getConfigurator().apply(slotConfig);
+        if (!status.isOK()) {
+            DriverStation.reportWarning(subsystemName + " could not configure onboard control, using roboRIO PID: " + status, false);
+            onboardControl = false;
+            return false;
+        }
+
+        onboardControl = true;
+        return true;
+    }
+
+    /**
+     * Moves the velocity loop back onto the roboRIO. The controller is reset on the measured velocity by the
+     * closed loop itself on its next cycle, so this is safe while the control thread runs.
+     */
+    public void disableOnboardControl() {
+        onboardControl = false;
+    }
+
+    public boolean isOnboardControlEnabled() {
+        return onboardControl;
     }
 
     /**
      * Sets the target speed for the roller
-     * @param speed target speed to set
+     * @param speed target speed to set, in rotations per second in velocity mode
      */
     public void setTargetSpeed(double speed) {
+        if (speed != targetSpeed) {
+            spinUpStartTime = Timer.getFPGATimestamp();
+        }
         this.targetSpeed = speed;
     }
 
@@ -49,10 +151,35 @@ public class RollerSubsystem extends MotorSubsystem {
 
     /**
      * Gets the current speed of the roller
-     * @return current speed
+     * @return current speed, the measured velocity in rotations per second in velocity mode
      */
     public double getCurrentSpeed() {
-        return motor.get();
+        MotorSnapshot sample = getSnapshot();
+        return isVelocityMode() ? sample.getVelocityRotationsPerSecond() : sample.getDutyCycle();
+    }
+
+    /**
+     * Sets how close to the target velocity counts as spun up
+     * @param tolerance tolerance in rotations per second
+     */
+    public void setSpinUpTolerance(double tolerance) {
+        spinUpTolerance = tolerance;
+    }
+
+    /**
+     * Checks if the roller is at its target velocity
+     * @return true if the measured velocity is within the spin up tolerance of the target
+     */
+    public boolean isAtTargetSpeed() {
+        return Math.abs(getCurrentSpeed() - targetSpeed) <= spinUpTolerance;
+    }
+
+    /**
+     * Gets how long the roller took to reach the last target it reached
+     * @return spin up time in seconds, or NaN if no target has been reached yet
+     */
+    public double getLastSpinUpTime() {
+        return lastSpinUpTime;
     }
 
     /** Runs the roller at the default run speed */
@@ -82,15 +209,65 @@ public class RollerSubsystem extends MotorSubsystem {
     }
 
     @Override
-    public void periodic() {
-        super.periodic();
+    protected void runControlLoop() {
+        // Read the flags once so every branch of this cycle sees the same mode
+        boolean stopped = isStopped;
+        boolean onboard = onboardControl;
+        boolean wasStarted = !wasRunning;
+        wasRunning = !stopped;
+        rioLoopActive = rioLoopActive && !stopped && !onboard;
 
-        if (!isStopped) {
-            double output = pid.calculate(motor.get(), targetSpeed);
-            setMotorSpeed(output);
+        if (stopped) {
+            setMotorNeutral();
+            return;
+        }
+        if (wasStarted) {
+            spinUpStartTime = Timer.getFPGATimestamp();
+        }
+
+        if (!isVelocityMode()) {
+            setMotorSpeed(targetSpeed);
+            return;
+        }
+
+        double velocity = getSnapshot().getVelocityRotationsPerSecond();
+        if (onboard) {
+            sendRequest(velocityRequest.withVelocity(targetSpeed), targetSpeed);
         } else {
-            motor.stopMotor();
+            if (!rioLoopActive) {
+                // Start the profile at the measured velocity, instead of where it was when this loop last ran
+                pid.reset(velocity);
+                rioLoopActive = true;
+            }
+            // The profile runs over velocity, so its setpoint "velocity" is the acceleration for kA
+            double feedback = pid.calculate(velocity, targetSpeed);
+            double setpointVelocity = pid.getSetpoint().position;
+            double setpointAcceleration = pid.getSetpoint().velocity;
+            double feedforward = ffConfig.kS * Math.signum(setpointVelocity)
+                + ffConfig.kV * setpointVelocity
+                + ffConfig.kA * setpointAcceleration;
+            setMotorVoltage(feedback + feedforward);
+        }
+
+        if (!Double.isNaN(spinUpStartTime) && Math.abs(velocity - targetSpeed) <= spinUpTolerance) {
+            lastSpinUpTime = Timer.getFPGATimestamp() - spinUpStartTime;
+            spinUpStartTime = Double.NaN;
+        }
+    }
+
+    @Override
+    protected void onControlPeriodChanged(double periodSeconds) {
+        pid = new ProfiledPIDController(pidConfig.kP, pidConfig.kI, pidConfig.kD,
+            new Constraints(pidConfig.maxVel, pidConfig.maxAcc), periodSeconds);
+        rioLoopActive = false;
+    }
+
+    @Override
+    protected void subsystemPeriodic() {
+        super.subsystemPeriodic();
+
+        if (isVelocityMode()) {
+            Logger.recordOutput(spinUpTimeKey, lastSpinUpTime);
         }
     }
-    
 }
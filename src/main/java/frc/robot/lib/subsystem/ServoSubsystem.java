@@ -5,18 +5,42 @@ import static edu.wpi.first.units.Units.Rotations;
 
 import org.littletonrobotics.junction.Logger;
 
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.configs.MotionMagicConfigs;
+import com.ctre.phoenix6.configs.Slot0Configs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.MotionMagicVoltage;
 
 import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.trajectory.TrapezoidProfile.Constraints;
 import edu.wpi.first.units.measure.Angle;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.lib.controllers.ControllerBank;
+import frc.robot.lib.util.FFConfiguration;
 import frc.robot.lib.util.PIDConfiguration;
 
 public class ServoSubsystem extends MotorSubsystem {
 
-    protected final ProfiledPIDController pid;
-    private Angle targetPosition;
+    /** Battery voltage that converts the duty cycle PID gains into the volts the onboard loop runs in */
+    public static final double NOMINAL_VOLTAGE = 12.0;
+
+    private final PIDConfiguration pidConfig;
+    private final String targetKey;
+
+    protected ProfiledPIDController pid;
+    private volatile Angle targetPosition;
+
+    /** Motion Magic request reused every cycle when the closed loop runs on the TalonFX */
+    private final MotionMagicVoltage onboardRequest = new MotionMagicVoltage(0);
+    private volatile boolean onboardControl = false;
+
+    /** True while the roboRIO side PID drove the motor last cycle, only touched by the closed loop */
+    private boolean rioLoopActive = false;
+
+    /** Shared bank running this servo's loop, or null when it uses its own ProfiledPIDController */
+    private ControllerBank controllerBank = null;
+    private int controllerBankAxis = -1;
     
     /**
      * Creates a new ServoSubsystem.
@@ -30,10 +54,129 @@ public class ServoSubsystem extends MotorSubsystem {
     public ServoSubsystem(String subsystemName, PIDConfiguration pidConfig, int servoID, TalonFXConfiguration config, Angle initialPosition) {
         super(subsystemName, servoID, "ServoMotor", config);
 
+        this.pidConfig = pidConfig;
         pid = new ProfiledPIDController(pidConfig.kP, pidConfig.kI, pidConfig.kD,
                 new Constraints(pidConfig.maxVel, pidConfig.maxAcc));
 
         targetPosition = initialPosition;
+        targetKey = subsystemName + "/PID/target";
+    }
+
+    /**
+     * Creates a new ServoSubsystem that runs its closed loop on the TalonFX.
+     * 
+     * @param subsystemName subsystem name for logging purposes
+     * @param pidConfig configuration for the closed loop and Motion Magic profile
+     * @param ffConfig feedforward configuration for the closed loop
+     * @param servoID motor CAN ID for TalonFX
+     * @param config TalonFXConfiguration for motor
+     * @param initialPosition initial position of the servo
+     */
+    public ServoSubsystem(String subsystemName, PIDConfiguration pidConfig, FFConfiguration ffConfig, int servoID, TalonFXConfiguration config, Angle initialPosition) {
+        this(subsystemName, pidConfig, servoID, config, initialPosition);
+        enableOnboardControl(ffConfig);
+    }
+
+    /**
+     * Moves the closed loop onto the TalonFX. The PID and feedforward gains are written into slot 0 and the
+     * profile constraints into the Motion Magic configs, then the servo is driven with Motion Magic voltage
+     * requests. The feedforward gains are in volts, like everywhere else an FFConfiguration is used. The PID gains
+     * are in duty cycle, the units the roboRIO side controller outputs, and are scaled by {@link #NOMINAL_VOLTAGE}
+     * so both loops respond the same. If the configs can not be applied the roboRIO side controller stays in use.
+     * 
+     * @param ffConfig feedforward configuration for the closed loop
+     * @return true if the closed loop now runs on the TalonFX
+     */
+    public boolean enableOnboardControl(FFConfiguration ffConfig) {
+        Slot0Configs slotConfig = createSlotConfig(pidConfig, ffConfig);
+        MotionMagicConfigs motionMagicConfig = createMotionMagicConfig(pidConfig);
+
+        StatusCode slotStatus = motor.getConfigurator().apply(slotConfig);
+        StatusCode motionMagicStatus = motor.getConfigurator().apply(motionMagicConfig);
+        if (!slotStatus.isOK() || !motionMagicStatus.isOK()) {
+            DriverStation.reportWarning(subsystemName + " could not configure onboard control, using roboRIO PID: "
+                + (slotStatus.isOK() ? motionMagicStatus : slotStatus), false);
+            onboardControl = false;
+            return false;
+        }
+
+        onboardControl = true;
+        return true;
+    }
+
+    /**
+     * Builds the slot 0 gains of the onboard closed loop, which runs in volts
+     * @param pidConfig PID gains in duty cycle
+     * @param ffConfig feedforward gains in volts
+     * @return the slot configs
+     */
+    static Slot0Configs createSlotConfig(PIDConfiguration pidConfig, FFConfiguration ffConfig) {
+        return new Slot0Configs()
+            .withKP(pidConfig.kP * NOMINAL_VOLTAGE)
+            .withKI(pidConfig.kI * NOMINAL_VOLTAGE)
+            .withKD(pidConfig.kD * NOMINAL_VOLTAGE)
+            .withKS(ffConfig.kS)
+            .withKV(ffConfig.kV)
+            .withKA(ffConfig.kA);
+    }
+
+    /**
+     * Builds the Motion Magic profile of the onboard closed loop
+     * @param pidConfig profile constraints in rotations
+     * @return the Motion Magic configs
+     */
+    static MotionMagicConfigs createMotionMagicConfig(PIDConfiguration pidConfig) {
+        return new MotionMagicConfigs()
+            .withMotionMagicCruiseVelocity(pidConfig.maxVel)
+            .withMotionMagicAcceleration(pidConfig.maxAcc);
+    }
+
+    /**
+     * Moves the closed loop back onto the roboRIO side ProfiledPIDController. The controller is reset on the
+     * current position by the closed loop itself on its next cycle, so this is safe while the control thread runs.
+     */
+    public void disableOnboardControl() {
+        onboardControl = false;
+    }
+
+    /**
+     * Checks if the closed loop runs on the TalonFX
+     * @return true if the servo is driven with Motion Magic requests
+     */
+    public boolean isOnboardControlEnabled() {
+        return onboardControl;
+    }
+
+    /**
+     * Runs this servo's profiled PID as one axis of a shared {@link ControllerBank}. The servo hands the bank its
+     * measurement and goal every cycle, and the bank drives the motor when the robot loop steps it after the
+     * command scheduler. The axis is disabled while the servo is stopped or controlled onboard.
+     *
+     * <p>The bank drives the motor from the robot loop, so it can not be combined with the control thread, which
+     * must be the only thread sending requests.
+     * 
+     * @param bank the bank to register with
+     */
+    public void useControllerBank(ControllerBank bank) {
+        if (isControlThreadEnabled()) {
+            throw new IllegalStateException(subsystemName + " can not use a controller bank while its control thread is enabled");
+        }
+        controllerBank = bank;
+        controllerBankAxis = bank.registerAxis(pidConfig, getCurrentPosition().in(Rotations), this::setMotorSpeed);
+        bank.setGoal(controllerBankAxis, targetPosition.in(Rotations));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the servo uses a controller bank, which drives it from the robot loop
+     */
+    @Override
+    public void enableControlThread(double frequencyHz) {
+        if (controllerBank != null) {
+            throw new IllegalStateException(subsystemName + " can not enable its control thread while it uses a controller bank");
+        }
+        super.enableControlThread(frequencyHz);
     }
 
     /**
@@ -71,19 +214,48 @@ public class ServoSubsystem extends MotorSubsystem {
     }
 
     @Override
-    public void periodic() {
-        super.periodic();
+    protected void runControlLoop() {
+        // Read the flags once so every branch of this cycle sees the same mode
+        boolean stopped = isStopped;
+        boolean onboard = onboardControl;
+        boolean rioLoop = !stopped && !onboard && controllerBank == null;
+
+        if (controllerBank != null) {
+            // The measurement goes first so an axis that is enabled again resets on the current position
+            controllerBank.setMeasurement(controllerBankAxis, getSnapshot().getPositionRotations());
+            controllerBank.setEnabled(controllerBankAxis, !stopped && !onboard);
+        }
 
-        if (!isStopped) {
-            Angle currentPosition = getCurrentPosition();
-            double output = pid.calculate(currentPosition.in(Rotations), targetPosition.in(Rotations));
-            motor.set(output);
+        if (stopped) {
+            setMotorNeutral();
+        } else if (onboard) {
+            double target = targetPosition.in(Rotations);
+            sendRequest(onboardRequest.withPosition(target), target);
+        } else if (controllerBank != null) {
+            controllerBank.setGoal(controllerBankAxis, targetPosition.in(Rotations));
         } else {
-            motor.stopMotor();
-        }       
+            MotorSnapshot sample = getSnapshot();
+            if (!rioLoopActive) {
+                // Start the profile where the mechanism is, instead of where it was when this loop last ran
+                pid.reset(sample.getPositionRotations(), sample.getVelocityRotationsPerSecond());
+            }
+            double output = pid.calculate(sample.getPositionRotations(), targetPosition.in(Rotations));
+            setMotorSpeed(output);
+        }
+        rioLoopActive = rioLoop;
+    }
 
-        Logger.recordOutput(subsystemName + "/PID/target", targetPosition.in(Degrees));
+    @Override
+    protected void onControlPeriodChanged(double periodSeconds) {
+        pid = new ProfiledPIDController(pidConfig.kP, pidConfig.kI, pidConfig.kD,
+                new Constraints(pidConfig.maxVel, pidConfig.maxAcc), periodSeconds);
+        rioLoopActive = false;
     }
 
-    
+    @Override
+    protected void subsystemPeriodic() {
+        super.subsystemPeriodic();
+
+        Logger.recordOutput(targetKey, targetPosition.in(Degrees));
+    }
 }
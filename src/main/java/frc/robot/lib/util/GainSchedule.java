@@ -0,0 +1,201 @@
+package frc.robot.lib.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * A table of PID and feedforward gains keyed on a scheduling variable, such as an arm angle. Gains are linearly
+ * interpolated between breakpoints and held at the ends of the table. {@link #update(double)} writes the
+ * interpolated gains into this object instead of returning a new one, so scheduling does not allocate; an
+ * instance should therefore only be used by one controller.
+ *
+ * <p>Schedules are loaded from a CSV file with one row per breakpoint:
+ * {@code variable, kP, kI, kD, kS, kV, kA}, sorted by the scheduling variable.
+ */
+public class GainSchedule {
+
+    private static final int COLUMNS = 7;
+
+    private final Variable variable;
+    private final double[] breakpoints;
+    private final double[] kPs;
+    private final double[] kIs;
+    private final double[] kDs;
+    private final double[] kSs;
+    private final double[] kVs;
+    private final double[] kAs;
+
+    /** Segment of the last lookup, checked first since the variable usually changes slowly */
+    private int lastSegment = 0;
+
+    private double kP;
+    private double kI;
+    private double kD;
+    private double kS;
+    private double kV;
+    private double kA;
+
+    /**
+     * Creates a new GainSchedule.
+     *
+     * @param variable what the schedule is keyed on
+     * @param breakpoints increasing values of the scheduling variable
+     * @param pidConfigs PID gains at each breakpoint
+     * @param ffConfigs feedforward gains at each breakpoint
+     */
+    public GainSchedule(Variable variable, double[] breakpoints, PIDConfiguration[] pidConfigs, FFConfiguration[] ffConfigs) {
+        this(variable, breakpoints, column(pidConfigs, 0), column(pidConfigs, 1), column(pidConfigs, 2),
+            column(ffConfigs, 0), column(ffConfigs, 1), column(ffConfigs, 2));
+    }
+
+    private GainSchedule(Variable variable, double[] breakpoints, double[] kPs, double[] kIs, double[] kDs, double[] kSs, double[] kVs, double[] kAs) {
+        int n = breakpoints.length;
+        if (n < 1) {
+            throw new IllegalArgumentException("A gain schedule needs at least 1 breakpoint");
+        }
+        if (kPs.length != n || kIs.length != n || kDs.length != n || kSs.length != n || kVs.length != n || kAs.length != n) {
+            throw new IllegalArgumentException("A gain schedule needs gains for each of its " + n + " breakpoints");
+        }
+        for (int i = 1; i < n; i++) {
+            if (!(breakpoints[i] > breakpoints[i - 1])) {
+                throw new IllegalArgumentException("Gain schedule breakpoints must be increasing, got " + breakpoints[i] + " after " + breakpoints[i - 1]);
+            }
+        }
+
+        this.variable = variable;
+        this.breakpoints = breakpoints.clone();
+        this.kPs = kPs.clone();
+        this.kIs = kIs.clone();
+        this.kDs = kDs.clone();
+        this.kSs = kSs.clone();
+        this.kVs = kVs.clone();
+        this.kAs = kAs.clone();
+
+        update(breakpoints[0]);
+    }
+
+    private static double[] column(PIDConfiguration[] configs, int gain) {
+        double[] values = new double[configs.length];
+        for (int i = 0; i < configs.length; i++) {
+            values[i] = gain == 0 ? configs[i].kP : gain == 1 ? configs[i].kI : configs[i].kD;
+        }
+        return values;
+    }
+
+    private static double[] column(FFConfiguration[] configs, int gain) {
+        double[] values = new double[configs.length];
+        for (int i = 0; i < configs.length; i++) {
+            values[i] = gain == 0 ? configs[i].kS : gain == 1 ? configs[i].kV : configs[i].kA;
+        }
+        return values;
+    }
+
+    /**
+     * Loads a gain schedule from a CSV file in the deploy directory
+     *
+     * @param fileName name of the file relative to the deploy directory
+     * @param variable what the schedule is keyed on
+     * @return the loaded gain schedule
+     * @throws IOException if the file can not be read
+     */
+    public static GainSchedule fromDeployFile(String fileName, Variable variable) throws IOException {
+        return fromFile(Filesystem.getDeployDirectory().toPath().resolve(fileName), variable);
+    }
+
+    /**
+     * Loads a gain schedule from a CSV file
+     *
+     * @param path path to the file
+     * @param variable what the schedule is keyed on
+     * @return the loaded gain schedule
+     * @throws IOException if the file can not be read
+     */
+    public static GainSchedule fromFile(Path path, Variable variable) throws IOException {
+        double[][] columns = NumericCsv.readColumns(path, COLUMNS);
+        return new GainSchedule(variable, columns[0], columns[1], columns[2], columns[3], columns[4], columns[5], columns[6]);
+    }
+
+    /**
+     * Interpolates the gains for a value of the scheduling variable. Read them back with the getters.
+     * @param value the current value of the scheduling variable
+     */
+    public void update(double value) {
+        int last = breakpoints.length - 1;
+        if (value <= breakpoints[0] || last == 0) {
+            setGains(0, 0, 0.0);
+            return;
+        }
+        if (value >= breakpoints[last]) {
+            setGains(last, last, 0.0);
+            return;
+        }
+
+        int segment = lastSegment;
+        if (value < breakpoints[segment] || value > breakpoints[segment + 1]) {
+            // Binary search for the segment containing the value
+            int low = 0;
+            int high = last;
+            while (high - low > 1) {
+                int middle = (low + high) >>> 1;
+                if (breakpoints[middle] <= value) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            segment = low;
+            lastSegment = segment;
+        }
+
+        double t = (value - breakpoints[segment]) / (breakpoints[segment + 1] - breakpoints[segment]);
+        setGains(segment, segment + 1, t);
+    }
+
+    private void setGains(int low, int high, double t) {
+        kP = kPs[low] + t * (kPs[high] - kPs[low]);
+        kI = kIs[low] + t * (kIs[high] - kIs[low]);
+        kD = kDs[low] + t * (kDs[high] - kDs[low]);
+        kS = kSs[low] + t * (kSs[high] - kSs[low]);
+        kV = kVs[low] + t * (kVs[high] - kVs[low]);
+        kA = kAs[low] + t * (kAs[high] - kAs[low]);
+    }
+
+    public Variable getVariable() {
+        return variable;
+    }
+
+    public double getKP() {
+        return kP;
+    }
+
+    public double getKI() {
+        return kI;
+    }
+
+    public double getKD() {
+        return kD;
+    }
+
+    public double getKS() {
+        return kS;
+    }
+
+    public double getKV() {
+        return kV;
+    }
+
+    public double getKA() {
+        return kA;
+    }
+
+    public enum Variable {
+        /** The measured position of the mechanism */
+        POSITION,
+        /** The velocity of the motion profile's setpoint */
+        VELOCITY,
+        /** A value supplied by the user, such as the load on the mechanism */
+        EXTERNAL
+    }
+}
@@ -2,142 +2,181 @@ package frc.robot.lib.util;
 
 import static edu.wpi.first.units.Units.Seconds;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
 import edu.wpi.first.units.measure.Time;
 import edu.wpi.first.wpilibj.DriverStation;
 
+/**
+ * The state of the match. Everything is read from a snapshot that {@link #refresh()} takes from the DriverStation
+ * once per robot cycle, right after the driver station data is refreshed, so queries are plain field reads and do
+ * not allocate. Only the methods returning {@link Time} allocate, prefer their primitive counterparts in hot code.
+ * The snapshot is written by the main robot thread. Its fields are volatile so control threads see each value as
+ * soon as it is written, but a reader on another thread may see fields from two neighbouring cycles together.
+ */
 public class GenericState {
-    
+
+    private static volatile boolean redAlliance = false;
+    private static volatile boolean autonomous = false;
+    private static volatile boolean teleop = false;
+    private static volatile boolean test = false;
+    private static volatile boolean enabled = false;
+    private static volatile double matchTimeSeconds = 0.0;
+    private static volatile Shift currentShift = Shift.NOT_DEFINED;
+    private static volatile boolean hubActive = false;
+    private static volatile double timeToShiftChangeSeconds = 0.0;
+    private static volatile String gameData = "";
+
+    private static final List<ShiftListener> shiftListeners = new ArrayList<>();
+    private static final ShiftScheduler shiftScheduler = new ShiftScheduler();
+
+    /**
+     * Takes a new snapshot of the match state from the DriverStation and notifies the shift listeners if the shift
+     * changed. Called once per cycle by the robot loop.
+     */
+    public static void refresh() {
+        Optional<DriverStation.Alliance> alliance = DriverStation.getAlliance();
+        redAlliance = alliance.isPresent() && alliance.get() == DriverStation.Alliance.Red;
+
+        autonomous = DriverStation.isAutonomous();
+        teleop = DriverStation.isTeleop();
+        test = DriverStation.isTest();
+        enabled = DriverStation.isEnabled();
+
+        double time = DriverStation.getMatchTime();
+        matchTimeSeconds = Double.isNaN(time) ? 0.0 : time;
+
+        String message = DriverStation.getGameSpecificMessage();
+        if (!message.equals(gameData)) {
+            gameData = message;
+            if (gameData.length() > 0 && !MatchTimeline.isHubScheduleKnown(gameData)) {
+                DriverStation.reportWarning("Unexpected game data: " + gameData, false);
+            }
+        }
+
+        Shift previousShift = currentShift;
+        currentShift = MatchTimeline.getShift(autonomous, teleop, matchTimeSeconds);
+        hubActive = MatchTimeline.isHubActive(currentShift, redAlliance, gameData);
+        timeToShiftChangeSeconds = computeTimeToShiftChange();
+
+        if (currentShift != previousShift) {
+            for (int i = 0; i < shiftListeners.size(); i++) {
+                shiftListeners.get(i).onShiftChange(previousShift, currentShift);
+            }
+        }
+
+        shiftScheduler.update(matchTimeSeconds, teleop, redAlliance, gameData);
+    }
+
+    /**
+     * Gets the scheduler that runs actions ahead of shift and hub changes, updated by {@link #refresh()}
+     * @return the shared shift scheduler
+     */
+    public static ShiftScheduler getShiftScheduler() {
+        return shiftScheduler;
+    }
+
+    /**
+     * Registers a listener that is called from {@link #refresh()} whenever the shift changes
+     * @param listener the listener to call
+     */
+    public static void addShiftListener(ShiftListener listener) {
+        shiftListeners.add(listener);
+    }
+
+    /**
+     * Removes a shift listener
+     * @param listener the listener to remove
+     */
+    public static void removeShiftListener(ShiftListener listener) {
+        shiftListeners.remove(listener);
+    }
+
     /**
      * Checks if the current alliance is red or blue. If the alliance is not defined, it returns false.
      * @return true if the alliance is red, false if the alliance is blue or not defined.
      */
     public static boolean isRedAlliance() {
-        var alliance = DriverStation.getAlliance();
-        if (alliance.isPresent()) {
-            return (alliance.get() == DriverStation.Alliance.Red);
-        } else {
-            return false;
-        }
+        return redAlliance;
     }
 
     /** Gets the current match time. If the match time is not defined, it returns 0 seconds.
      * @return the current match time in seconds.
      */
     public static Time getMatchTime() {
-        Double time = DriverStation.getMatchTime();
-        if (time.isNaN()) {
-            return Seconds.of(0.0);
-        } else {
-            return Seconds.of(time);
-        }
+        return Seconds.of(matchTimeSeconds);
+    }
+
+    /** Gets the current match time without allocating. If the match time is not defined, it returns 0.
+     * @return the current match time in seconds.
+     */
+    public static double getMatchTimeSeconds() {
+        return matchTimeSeconds;
     }
 
     /** Checks if the robot is currently in teleoperated mode.
      * @return true if the robot is in teleoperated mode, false otherwise.
      */
     public static boolean isTeleop() {
-        return DriverStation.isTeleop();
+        return teleop;
     }
 
     /** Checks if the robot is currently in autonomous mode.
      * @return true if the robot is in autonomous mode, false otherwise.
      */
     public static boolean isAutonomous() {
-        return DriverStation.isAutonomous();
+        return autonomous;
     }
 
     /** Checks if the robot is currently in test mode.
      * @return true if the robot is in test mode, false otherwise.
      */
     public static boolean isTest() {
-        return DriverStation.isTest();
+        return test;
     }
 
     /** Checks if the robot is currently disabled.
      * @return true if the robot is disabled, false otherwise.
      */
     public static boolean isDisabled() {
-        return DriverStation.isDisabled();
+        return !enabled;
     }
 
     /** Checks if the robot is currently enabled.
      * @return true if the robot is enabled, false otherwise.
      */
     public static boolean isEnabled() {
-        return DriverStation.isEnabled();
+        return enabled;
     }
-    
+
     /** Checks if the hub is currently active based on the current shift and alliance color. The hub is active during the autonomous period, transition shift, and endgame. During teleop, the hub is active based on the alliance color and current shift.
      * @return true if the hub is active, false otherwise.
      */
     public static boolean isHubActive() {
-        Shift currentShift = getCurrentShift();
-        if (currentShift == Shift.AUTO || currentShift == Shift.TRANSITION_SHIFT || currentShift == Shift.ENDGAME) return true;
-
-        String gameData;
-        gameData = DriverStation.getGameSpecificMessage();
-
-        if (gameData.length() > 0) {
-            switch (gameData.charAt(0)) {
-                case 'R': // red hub inactive first, will be active for shift 2 and shift 4
-                    if (currentShift == Shift.SHIFT_ONE || currentShift == Shift.SHIFT_THREE) {
-                        return !isRedAlliance();
-                    } else {
-                        return isRedAlliance();
-                    }
-                case 'B': // blue hub inactive first, will be active for shift 2 and shift 4
-                    if (currentShift == Shift.SHIFT_ONE || currentShift == Shift.SHIFT_THREE) {
-                        return isRedAlliance();
-                    } else {
-                        return !isRedAlliance();
-                    }
-                default:
-                    System.out.println("Unexpected game data: " + gameData);
-                    return false;
-            }
-        } else {
-            return false;
-        }
+        return hubActive;
     }
 
     /** Gets the current shift based on the match time and robot mode. The shift is determined by the match time and the robot mode (autonomous or teleop). If the robot is in autonomous mode, it returns the AUTO shift. If the robot is in teleop mode, it checks the match time against the defined shifts and returns the appropriate shift. If the robot is not in either mode, it returns NOT_DEFINED.
      * @return the current shift.
      */
     public static Shift getCurrentShift() {
-        Time time = getMatchTime();
-        if (isAutonomous()) {
-            return Shift.AUTO;
-        } else if (isTeleop()) {
-            if (time.in(Seconds) >= Shift.TRANSITION_SHIFT.getEndTime().in(Seconds)) {
-                return Shift.TRANSITION_SHIFT;
-            } else if (time.in(Seconds) >= Shift.SHIFT_ONE.getEndTime().in(Seconds)) {
-                return Shift.SHIFT_ONE;
-            } else if (time.in(Seconds) >= Shift.SHIFT_TWO.getEndTime().in(Seconds)) {
-                return Shift.SHIFT_TWO;
-            } else if (time.in(Seconds) >= Shift.SHIFT_THREE.getEndTime().in(Seconds)) {
-                return Shift.SHIFT_THREE;
-            } else if (time.in(Seconds) >= Shift.SHIFT_FOUR.getEndTime().in(Seconds)) {
-                return Shift.SHIFT_FOUR;
-            } else {
-                return Shift.ENDGAME;
-            }
-        } else {
-            return Shift.NOT_DEFINED;
-        }
+        return currentShift;
     }
 
     /** Gets the time remaining until the current shift changes. If the robot is in autonomous mode, it returns the current match time. If the robot is in teleop mode, it returns the time remaining until the end of the current shift. If the robot is not in either mode, it returns 0 seconds.
      * @return the time remaining until the current shift changes.
      */
     public static Time getTimeToShiftChange() {
-        Time time = getMatchTime();
-        if (isAutonomous()) {
-            return time;
-        } else if (isTeleop()) {
-            return Seconds.of(time.in(Seconds) - getCurrentShift().getEndTime().in(Seconds));
-        } else {
-            return Seconds.of(0.0);
-        }
+        return Seconds.of(timeToShiftChangeSeconds);
+    }
+
+    /** Gets the time remaining until the current shift changes without allocating.
+     * @return the time remaining until the current shift changes in seconds.
+     */
+    public static double getTimeToShiftChangeSeconds() {
+        return timeToShiftChangeSeconds;
     }
 
     /** Gets the time remaining until the specified shift starts.
@@ -145,8 +184,36 @@ public class GenericState {
      * @return the time remaining until the specified shift starts.
      */
     public static Time getTimeUntil(Shift shift) {
-        Time time = getMatchTime();
-        return Seconds.of(shift.getEndTime().in(Seconds) - time.in(Seconds));
+        return Seconds.of(getTimeUntilSeconds(shift));
+    }
+
+    /** Gets the time remaining until the specified shift starts without allocating.
+     * @param shift the shift to get the time until.
+     * @return the time remaining until the specified shift starts in seconds.
+     */
+    public static double getTimeUntilSeconds(Shift shift) {
+        return shift.getEndTimeSeconds() - matchTimeSeconds;
+    }
+
+    private static double computeTimeToShiftChange() {
+        if (autonomous) {
+            return matchTimeSeconds;
+        } else if (teleop) {
+            return matchTimeSeconds - currentShift.getEndTimeSeconds();
+        } else {
+            return 0.0;
+        }
+    }
+
+    /** Called when the shift changes */
+    @FunctionalInterface
+    public interface ShiftListener {
+        /**
+         * Called from {@link GenericState#refresh()} when the shift changes
+         * @param previousShift the shift before the change
+         * @param currentShift the shift after the change
+         */
+        void onShiftChange(Shift previousShift, Shift currentShift);
     }
 
     public enum Shift {
@@ -161,6 +228,8 @@ public class GenericState {
 
         private Time StartTime;
         private Time EndTime;
+        private final double startTimeSeconds;
+        private final double endTimeSeconds;
 
         public Time getStartTime() {
             return this.StartTime;
@@ -170,13 +239,25 @@ public class GenericState {
             return this.EndTime;
         }
 
+        /** @return the match time the shift starts at, in seconds */
+        public double getStartTimeSeconds() {
+            return startTimeSeconds;
+        }
+
+        /** @return the match time the shift ends at, in seconds */
+        public double getEndTimeSeconds() {
+            return endTimeSeconds;
+        }
+
         public Time getShiftLength() {
             return Seconds.of(this.StartTime.in(Seconds) - this.EndTime.in(Seconds));
         }
-        
+
         private Shift(Time startTime, Time endTime) {
             this.StartTime = startTime;
             this.EndTime = endTime;
+            this.startTimeSeconds = startTime.in(Seconds);
+            this.endTimeSeconds = endTime.in(Seconds);
         }
     }
 }
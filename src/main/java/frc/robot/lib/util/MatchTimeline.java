@@ -0,0 +1,128 @@
+package frc.robot.lib.util;
+
+import frc.robot.lib.util.GenericState.Shift;
+
+/**
+ * The teleop shifts compiled into a table of primitive boundaries, so the shift at a match time is a binary search
+ * over a few doubles instead of a chain of unit conversions. Match time counts down, so the boundaries are stored
+ * from the start of teleop to the end of the match.
+ */
+public final class MatchTimeline {
+
+    /** Teleop shifts in the order they are played */
+    private static final Shift[] TELEOP_SHIFTS = {
+        Shift.TRANSITION_SHIFT, Shift.SHIFT_ONE, Shift.SHIFT_TWO, Shift.SHIFT_THREE, Shift.SHIFT_FOUR, Shift.ENDGAME
+    };
+
+    /** Match time each teleop shift ends at, descending */
+    private static final double[] TELEOP_SHIFT_ENDS = new double[TELEOP_SHIFTS.length];
+
+    static {
+        for (int i = 0; i < TELEOP_SHIFTS.length; i++) {
+            TELEOP_SHIFT_ENDS[i] = TELEOP_SHIFTS[i].getEndTimeSeconds();
+            if (i > 0 && TELEOP_SHIFT_ENDS[i] >= TELEOP_SHIFT_ENDS[i - 1]) {
+                throw new IllegalStateException("Teleop shifts must end in match order, " + TELEOP_SHIFTS[i] + " does not");
+            }
+        }
+    }
+
+    private MatchTimeline() {}
+
+    /**
+     * Gets the shift at a match time
+     * @param autonomous true if the robot is in autonomous
+     * @param teleop true if the robot is in teleop
+     * @param matchTimeSeconds the match time, counting down
+     * @return the shift, or NOT_DEFINED outside of autonomous and teleop
+     */
+    public static Shift getShift(boolean autonomous, boolean teleop, double matchTimeSeconds) {
+        if (autonomous) {
+            return Shift.AUTO;
+        } else if (teleop) {
+            return TELEOP_SHIFTS[getTeleopShiftIndex(matchTimeSeconds)];
+        } else {
+            return Shift.NOT_DEFINED;
+        }
+    }
+
+    /**
+     * Gets the index of the teleop shift at a match time, the first shift whose end is not after it
+     * @param matchTimeSeconds the match time, counting down
+     * @return the index of the shift in play order
+     */
+    private static int getTeleopShiftIndex(double matchTimeSeconds) {
+        int low = 0;
+        int high = TELEOP_SHIFT_ENDS.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (matchTimeSeconds >= TELEOP_SHIFT_ENDS[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /** @return the number of shift changes during teleop */
+    public static int getTeleopBoundaryCount() {
+        return TELEOP_SHIFTS.length - 1;
+    }
+
+    /**
+     * Gets the match time of a shift change during teleop
+     * @param boundary the index of the change, 0 is the end of the transition shift
+     * @return the match time the change happens at
+     */
+    public static double getTeleopBoundarySeconds(int boundary) {
+        return TELEOP_SHIFT_ENDS[boundary];
+    }
+
+    /**
+     * Gets the shift that starts at a shift change during teleop
+     * @param boundary the index of the change, 0 is the end of the transition shift
+     * @return the shift that starts at the change
+     */
+    public static Shift getShiftAfterBoundary(int boundary) {
+        return TELEOP_SHIFTS[boundary + 1];
+    }
+
+    /**
+     * Gets the shift that ends at a shift change during teleop
+     * @param boundary the index of the change, 0 is the end of the transition shift
+     * @return the shift that ends at the change
+     */
+    public static Shift getShiftBeforeBoundary(int boundary) {
+        return TELEOP_SHIFTS[boundary];
+    }
+
+    /**
+     * Checks if the game data says which hub is inactive first
+     * @param gameData the game specific message
+     * @return true if the hub activity of the alliance shifts is known
+     */
+    public static boolean isHubScheduleKnown(String gameData) {
+        return gameData.length() > 0 && (gameData.charAt(0) == 'R' || gameData.charAt(0) == 'B');
+    }
+
+    /**
+     * Checks if an alliance's hub is active during a shift. The hub is active during the autonomous period,
+     * transition shift and endgame. During the alliance shifts it depends on which hub the game data says is
+     * inactive first, and it is reported inactive while that is not known.
+     * @param shift the shift
+     * @param redAlliance true for the red alliance's hub
+     * @param gameData the game specific message
+     * @return true if the hub is active
+     */
+    public static boolean isHubActive(Shift shift, boolean redAlliance, String gameData) {
+        if (shift == Shift.AUTO || shift == Shift.TRANSITION_SHIFT || shift == Shift.ENDGAME) return true;
+
+        if (!isHubScheduleKnown(gameData)) {
+            return false;
+        }
+        // The hub that is inactive first is active for shift 2 and shift 4
+        boolean inactiveFirst = (gameData.charAt(0) == 'R') == redAlliance;
+        boolean oddShift = shift == Shift.SHIFT_ONE || shift == Shift.SHIFT_THREE;
+        return oddShift != inactiveFirst;
+    }
+}
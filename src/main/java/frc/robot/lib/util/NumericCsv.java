@@ -0,0 +1,57 @@
+package frc.robot.lib.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads small numeric tables, such as shot profiles and gain schedules, from CSV files. Blank lines and lines
+ * starting with {@code #} are ignored.
+ */
+public class NumericCsv {
+
+    private NumericCsv() {}
+
+    /**
+     * Reads a CSV file of numbers
+     *
+     * @param path path to the file
+     * @param columns the number of values every row must have
+     * @return the values of each column, indexed by column and then by row
+     * @throws IOException if the file can not be read or a row is malformed
+     */
+    public static double[][] readColumns(Path path, int columns) throws IOException {
+        List<double[]> rows = new ArrayList<>();
+        List<String> lines = Files.readAllLines(path);
+        for (int lineNumber = 0; lineNumber < lines.size(); lineNumber++) {
+            String line = lines.get(lineNumber).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] values = line.split(",");
+            if (values.length != columns) {
+                throw new IOException(path + ":" + (lineNumber + 1) + ": expected " + columns + " values but got " + values.length);
+            }
+            double[] row = new double[columns];
+            try {
+                for (int i = 0; i < columns; i++) {
+                    row[i] = Double.parseDouble(values[i].trim());
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException(path + ":" + (lineNumber + 1) + ": " + e.getMessage(), e);
+            }
+            rows.add(row);
+        }
+
+        double[][] result = new double[columns][rows.size()];
+        for (int row = 0; row < rows.size(); row++) {
+            for (int column = 0; column < columns; column++) {
+                result[column][row] = rows.get(row)[column];
+            }
+        }
+        return result;
+    }
+}
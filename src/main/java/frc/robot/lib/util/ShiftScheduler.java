@@ -0,0 +1,171 @@
+package frc.robot.lib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.lib.util.GenericState.Shift;
+
+/**
+ * Runs actions a lead time before teleop shift changes or before the robot's hub changes activity, for example to
+ * spin up the shooter 1.5 seconds before the hub goes active. Each action runs once per change, on the cycle the
+ * match time crosses the change time plus its lead. Changes that were already within the lead time when teleop
+ * started are not run late.
+ *
+ * <p>{@link GenericState#refresh()} updates the shared scheduler from the DriverStation, so simulated match time
+ * drives it the same way. The inputs of {@link #update} are plain values, so a scheduler can also be stepped with
+ * a fake clock.
+ */
+public class ShiftScheduler {
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private double previousMatchTimeSeconds = Double.NaN;
+    private boolean previousTeleop = false;
+
+    /**
+     * Runs an action a lead time before a teleop shift starts
+     * @param shift the shift, one that starts after the transition shift
+     * @param leadSeconds how long before the shift starts to run the action
+     * @param action the action to run
+     */
+    public void runBeforeShift(Shift shift, double leadSeconds, Runnable action) {
+        if (shift == Shift.AUTO || shift == Shift.TRANSITION_SHIFT || shift == Shift.NOT_DEFINED) {
+            throw new IllegalArgumentException("Only shifts that start during teleop can be scheduled, got " + shift);
+        }
+        entries.add(new Entry(Trigger.SHIFT_START, shift, checkLead(leadSeconds), action));
+    }
+
+    /**
+     * Runs an action a lead time before the robot's hub becomes active
+     * @param leadSeconds how long before the hub becomes active to run the action
+     * @param action the action to run
+     */
+    public void runBeforeHubActive(double leadSeconds, Runnable action) {
+        entries.add(new Entry(Trigger.HUB_ACTIVE, Shift.NOT_DEFINED, checkLead(leadSeconds), action));
+    }
+
+    /**
+     * Runs an action a lead time before the robot's hub becomes inactive
+     * @param leadSeconds how long before the hub becomes inactive to run the action
+     * @param action the action to run
+     */
+    public void runBeforeHubInactive(double leadSeconds, Runnable action) {
+        entries.add(new Entry(Trigger.HUB_INACTIVE, Shift.NOT_DEFINED, checkLead(leadSeconds), action));
+    }
+
+    /**
+     * Schedules a command a lead time before a teleop shift starts
+     * @param shift the shift, one that starts after the transition shift
+     * @param leadSeconds how long before the shift starts to schedule the command
+     * @param command the command to schedule
+     */
+    public void scheduleBeforeShift(Shift shift, double leadSeconds, Command command) {
+        runBeforeShift(shift, leadSeconds, () -> CommandScheduler.getInstance().schedule(command));
+    }
+
+    /**
+     * Schedules a command a lead time before the robot's hub becomes active
+     * @param leadSeconds how long before the hub becomes active to schedule the command
+     * @param command the command to schedule
+     */
+    public void scheduleBeforeHubActive(double leadSeconds, Command command) {
+        runBeforeHubActive(leadSeconds, () -> CommandScheduler.getInstance().schedule(command));
+    }
+
+    /**
+     * Schedules a command a lead time before the robot's hub becomes inactive
+     * @param leadSeconds how long before the hub becomes inactive to schedule the command
+     * @param command the command to schedule
+     */
+    public void scheduleBeforeHubInactive(double leadSeconds, Command command) {
+        runBeforeHubInactive(leadSeconds, () -> CommandScheduler.getInstance().schedule(command));
+    }
+
+    /** Removes every scheduled action */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Runs the actions whose time was reached since the last update. Hub actions wait until the game data says
+     * which hub is inactive first.
+     * @param matchTimeSeconds the match time, counting down
+     * @param teleop true if the robot is in teleop
+     * @param redAlliance true if the robot is on the red alliance
+     * @param gameData the game specific message
+     */
+    public void update(double matchTimeSeconds, boolean teleop, boolean redAlliance, String gameData) {
+        double previous = previousMatchTimeSeconds;
+        boolean running = teleop && previousTeleop;
+        previousMatchTimeSeconds = matchTimeSeconds;
+        previousTeleop = teleop;
+        if (!running || matchTimeSeconds >= previous) {
+            return;
+        }
+
+        boolean hubScheduleKnown = MatchTimeline.isHubScheduleKnown(gameData);
+        for (int boundary = 0; boundary < MatchTimeline.getTeleopBoundaryCount(); boundary++) {
+            double boundarySeconds = MatchTimeline.getTeleopBoundarySeconds(boundary);
+            Shift before = MatchTimeline.getShiftBeforeBoundary(boundary);
+            Shift after = MatchTimeline.getShiftAfterBoundary(boundary);
+            boolean activeBefore = MatchTimeline.isHubActive(before, redAlliance, gameData);
+            boolean activeAfter = MatchTimeline.isHubActive(after, redAlliance, gameData);
+
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                double fireTime = boundarySeconds + entry.leadSeconds;
+                if (!(previous > fireTime && matchTimeSeconds <= fireTime)) {
+                    continue;
+                }
+
+                boolean matches;
+                switch (entry.trigger) {
+                    case SHIFT_START:
+                        matches = entry.shift == after;
+                        break;
+                    case HUB_ACTIVE:
+                        matches = hubScheduleKnown && !activeBefore && activeAfter;
+                        break;
+                    case HUB_INACTIVE:
+                        matches = hubScheduleKnown && activeBefore && !activeAfter;
+                        break;
+                    default:
+                        matches = false;
+                        break;
+                }
+                if (matches) {
+                    entry.action.run();
+                }
+            }
+        }
+    }
+
+    private static double checkLead(double leadSeconds) {
+        if (!(leadSeconds >= 0)) {
+            throw new IllegalArgumentException("Lead time must not be negative, got " + leadSeconds);
+        }
+        return leadSeconds;
+    }
+
+    private enum Trigger {
+        SHIFT_START,
+        HUB_ACTIVE,
+        HUB_INACTIVE
+    }
+
+    private static class Entry {
+        private final Trigger trigger;
+        private final Shift shift;
+        private final double leadSeconds;
+        private final Runnable action;
+
+        private Entry(Trigger trigger, Shift shift, double leadSeconds, Runnable action) {
+            this.trigger = trigger;
+            this.shift = shift;
+            this.leadSeconds = leadSeconds;
+            this.action = action;
+        }
+    }
+}
@@ -1,5 +1,226 @@
 package frc.robot.lib.util;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.DoubleUnaryOperator;
+
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * A precomputed shot lookup table indexed by distance to the target. The table is stored on a uniform distance grid
+ * so a lookup is a single index computation followed by an interpolation, with no searching and no allocation.
+ * Distances outside of the table are clamped to its ends.
+ *
+ * <p>Profiles are loaded from a CSV file in the deploy directory with one row per grid point:
+ * {@code distance, flywheel speed, hood angle, time of flight}. Blank lines and lines starting with {@code #} are
+ * ignored. The flywheel speed and hood angle are returned in whatever units the file uses; distances are in meters
+ * and times of flight in seconds.
+ */
 public class ShotProfile {
-    
+
+    /** Relative tolerance when checking that the distances are evenly spaced */
+    private static final double SPACING_TOLERANCE = 1e-6;
+
+    private final double minDistance;
+    private final double maxDistance;
+    private final double spacing;
+    private final double inverseSpacing;
+    private final Interpolation interpolation;
+
+    private final double[] flywheelSpeeds;
+    private final double[] hoodAngles;
+    private final double[] timesOfFlight;
+
+    // Hermite tangents, scaled by the spacing, only used for monotone cubic interpolation
+    private final double[] flywheelSpeedTangents;
+    private final double[] hoodAngleTangents;
+    private final double[] timeOfFlightTangents;
+
+    /**
+     * Creates a new ShotProfile.
+     *
+     * @param distances evenly spaced, increasing distances in meters
+     * @param flywheelSpeeds flywheel speed for each distance
+     * @param hoodAngles hood angle for each distance
+     * @param timesOfFlight time of flight in seconds for each distance
+     * @param interpolation how to interpolate between grid points
+     */
+    public ShotProfile(double[] distances, double[] flywheelSpeeds, double[] hoodAngles, double[] timesOfFlight, Interpolation interpolation) {
+        int n = distances.length;
+        if (n < 2) {
+            throw new IllegalArgumentException("A shot profile needs at least 2 points, got " + n);
+        }
+        if (flywheelSpeeds.length != n || hoodAngles.length != n || timesOfFlight.length != n) {
+            throw new IllegalArgumentException("All shot profile columns must have " + n + " entries");
+        }
+
+        this.minDistance = distances[0];
+        this.maxDistance = distances[n - 1];
+        this.spacing = (maxDistance - minDistance) / (n - 1);
+        if (!(spacing > 0)) {
+            throw new IllegalArgumentException("Shot profile distances must be increasing");
+        }
+        for (int i = 0; i < n; i++) {
+            double expected = minDistance + i * spacing;
+            if (Math.abs(distances[i] - expected) > SPACING_TOLERANCE * Math.max(1.0, Math.abs(expected))) {
+                throw new IllegalArgumentException("Shot profile distances must be evenly spaced, got " + distances[i] + " at index " + i + " but expected " + expected);
+            }
+        }
+        this.inverseSpacing = 1.0 / spacing;
+        this.interpolation = interpolation;
+
+        this.flywheelSpeeds = flywheelSpeeds.clone();
+        this.hoodAngles = hoodAngles.clone();
+        this.timesOfFlight = timesOfFlight.clone();
+
+        this.flywheelSpeedTangents = computeMonotoneTangents(this.flywheelSpeeds);
+        this.hoodAngleTangents = computeMonotoneTangents(this.hoodAngles);
+        this.timeOfFlightTangents = computeMonotoneTangents(this.timesOfFlight);
+    }
+
+    /**
+     * Loads a shot profile from a CSV file in the deploy directory
+     *
+     * @param fileName name of the file relative to the deploy directory
+     * @param interpolation how to interpolate between grid points
+     * @return the loaded shot profile
+     * @throws IOException if the file can not be read
+     */
+    public static ShotProfile fromDeployFile(String fileName, Interpolation interpolation) throws IOException {
+        return fromFile(Filesystem.getDeployDirectory().toPath().resolve(fileName), interpolation);
+    }
+
+    /**
+     * Loads a shot profile from a CSV file
+     *
+     * @param path path to the file
+     * @param interpolation how to interpolate between grid points
+     * @return the loaded shot profile
+     * @throws IOException if the file can not be read
+     */
+    public static ShotProfile fromFile(Path path, Interpolation interpolation) throws IOException {
+        double[][] columns = NumericCsv.readColumns(path, 4);
+        return new ShotProfile(columns[0], columns[1], columns[2], columns[3], interpolation);
+    }
+
+    /**
+     * Gets the flywheel speed for a distance
+     * @param distanceMeters distance to the target in meters
+     * @return the flywheel speed
+     */
+    public double getFlywheelSpeed(double distanceMeters) {
+        return sample(flywheelSpeeds, flywheelSpeedTangents, distanceMeters);
+    }
+
+    /**
+     * Gets the hood angle for a distance
+     * @param distanceMeters distance to the target in meters
+     * @return the hood angle
+     */
+    public double getHoodAngle(double distanceMeters) {
+        return sample(hoodAngles, hoodAngleTangents, distanceMeters);
+    }
+
+    /**
+     * Gets the time of flight for a distance
+     * @param distanceMeters distance to the target in meters
+     * @return the time of flight in seconds
+     */
+    public double getTimeOfFlight(double distanceMeters) {
+        return sample(timesOfFlight, timeOfFlightTangents, distanceMeters);
+    }
+
+    /**
+     * Gets the time of flight as a primitive function, for use with
+     * {@link frc.robot.lib.helpers.ProjectileHelper#solveMovingShot}
+     * @return the time of flight in seconds for a distance in meters
+     */
+    public DoubleUnaryOperator getTimeOfFlightFunction() {
+        return this::getTimeOfFlight;
+    }
+
+    public double getMinDistance() {
+        return minDistance;
+    }
+
+    public double getMaxDistance() {
+        return maxDistance;
+    }
+
+    public Interpolation getInterpolation() {
+        return interpolation;
+    }
+
+    private double sample(double[] values, double[] tangents, double distanceMeters) {
+        if (distanceMeters <= minDistance) {
+            return values[0];
+        }
+        if (distanceMeters >= maxDistance) {
+            return values[values.length - 1];
+        }
+
+        double position = (distanceMeters - minDistance) * inverseSpacing;
+        int index = Math.min((int) position, values.length - 2);
+        double t = position - index;
+
+        double y0 = values[index];
+        double y1 = values[index + 1];
+        if (interpolation == Interpolation.LINEAR) {
+            return y0 + t * (y1 - y0);
+        }
+
+        // Cubic Hermite basis
+        double t2 = t * t;
+        double t3 = t2 * t;
+        double h00 = 2 * t3 - 3 * t2 + 1;
+        double h10 = t3 - 2 * t2 + t;
+        double h01 = -2 * t3 + 3 * t2;
+        double h11 = t3 - t2;
+        return h00 * y0 + h10 * tangents[index] + h01 * y1 + h11 * tangents[index + 1];
+    }
+
+    /**
+     * Computes Fritsch-Carlson tangents so the cubic interpolation never overshoots between grid points. The
+     * tangents are scaled by the grid spacing, which cancels out on a uniform grid.
+     */
+    private static double[] computeMonotoneTangents(double[] values) {
+        int n = values.length;
+        double[] secants = new double[n - 1];
+        for (int i = 0; i < n - 1; i++) {
+            secants[i] = values[i + 1] - values[i];
+        }
+
+        double[] tangents = new double[n];
+        tangents[0] = secants[0];
+        tangents[n - 1] = secants[n - 2];
+        for (int i = 1; i < n - 1; i++) {
+            if (secants[i - 1] * secants[i] <= 0) {
+                tangents[i] = 0;
+            } else {
+                tangents[i] = (secants[i - 1] + secants[i]) / 2;
+            }
+        }
+
+        for (int i = 0; i < n - 1; i++) {
+            if (secants[i] == 0) {
+                tangents[i] = 0;
+                tangents[i + 1] = 0;
+                continue;
+            }
+            double alpha = tangents[i] / secants[i];
+            double beta = tangents[i + 1] / secants[i];
+            double magnitude = alpha * alpha + beta * beta;
+            if (magnitude > 9) {
+                double tau = 3 / Math.sqrt(magnitude);
+                tangents[i] = tau * alpha * secants[i];
+                tangents[i + 1] = tau * beta * secants[i];
+            }
+        }
+        return tangents;
+    }
+
+    public enum Interpolation {
+        LINEAR,
+        MONOTONE_CUBIC
+    }
 }
@@ -0,0 +1,136 @@
+package frc.robot.lib.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class CRTSolverTest {
+
+    private static final int A_TEETH = 17;
+    private static final int B_TEETH = 19;
+    private static final int MEASURED_TEETH = 40;
+
+    private final CRTSolver solver = new CRTSolver(A_TEETH, B_TEETH, MEASURED_TEETH);
+
+    /** @return encoder rotations for a measured gear position, before wrapping to one turn */
+    private static double encoderRotations(double measuredRotations, int encoderTeeth) {
+        return measuredRotations * MEASURED_TEETH / encoderTeeth;
+    }
+
+    /** @return how far the solve is from the true position in measured gear teeth, across the range wrap */
+    private double errorTeeth(double solved, double actual) {
+        return Math.IEEEremainder(solved - actual, solver.getUniqueRangeRotations()) * MEASURED_TEETH;
+    }
+
+    private static double wrap(double rotations) {
+        return rotations - Math.floor(rotations);
+    }
+
+    @Test
+    void recoversExactPositionsOverTheUniqueRange() {
+        double range = solver.getUniqueRangeRotations();
+        assertEquals((double) A_TEETH * B_TEETH / MEASURED_TEETH, range, 1e-12);
+
+        int steps = 10_000;
+        for (int i = 0; i < steps; i++) {
+            double actual = range * i / steps;
+            double solved = solver.solve(encoderRotations(actual, A_TEETH), encoderRotations(actual, B_TEETH));
+
+            assertTrue(solver.isLastReadingValid(), "noise free reading at " + actual + " was rejected");
+            assertEquals(0.0, errorTeeth(solved, actual), 1e-9);
+        }
+    }
+
+    @Test
+    void noisyReadingsAreNeverAcceptedAtTheWrongPosition() {
+        Random random = new Random(11);
+        double range = solver.getUniqueRangeRotations();
+        double noiseRotations = 0.002;
+
+        int readings = 100_000;
+        int invalid = 0;
+        int wrongAccepted = 0;
+        for (int i = 0; i < readings; i++) {
+            double actual = random.nextDouble() * range;
+            double rotationsA = encoderRotations(actual, A_TEETH) + random.nextGaussian() * noiseRotations;
+            double rotationsB = encoderRotations(actual, B_TEETH) + random.nextGaussian() * noiseRotations;
+
+            double solved = solver.solve(rotationsA, rotationsB);
+            if (!solver.isLastReadingValid()) {
+                invalid++;
+            } else if (Math.abs(errorTeeth(solved, actual)) > 0.5) {
+                wrongAccepted++;
+            }
+        }
+
+        assertEquals(0, wrongAccepted, "accepted readings at the wrong position");
+        assertTrue(invalid < readings / 1000, invalid + " of " + readings + " readings were rejected");
+    }
+
+    @Test
+    void mismatchAboveToleranceIsFlagged() {
+        double actual = 3.3;
+        double rotationsA = encoderRotations(actual, A_TEETH);
+        // Move encoder B by 0.3 teeth of the measured gear, past the default tolerance
+        double rotationsB = encoderRotations(actual, B_TEETH) + 0.3 / B_TEETH;
+
+        solver.solve(rotationsA, rotationsB);
+        assertFalse(solver.isLastReadingValid());
+        assertEquals(0.3, solver.getLastMismatchTeeth(), 1e-9);
+
+        solver.setToleranceTeeth(0.35);
+        solver.solve(rotationsA, rotationsB);
+        assertTrue(solver.isLastReadingValid());
+    }
+
+    @Test
+    void movingMechanismSolvesWithSkewedTimestamps() {
+        double velocity = 3.0;
+        double velocityA = encoderRotations(velocity, A_TEETH);
+        double velocityB = encoderRotations(velocity, B_TEETH);
+        double ageA = 0.004;
+        double ageB = 0.011;
+
+        int unalignedWrong = 0;
+        for (int i = 0; i < 500; i++) {
+            double time = 0.02 * i;
+            // Encoders report a wrapped absolute position, each sampled a little before the solve
+            double rotationsA = wrap(encoderRotations(velocity * (time - ageA), A_TEETH));
+            double rotationsB = wrap(encoderRotations(velocity * (time - ageB), B_TEETH));
+
+            double solved = solver.solveAligned(rotationsA, velocityA, time - ageA, rotationsB, velocityB, time - ageB, time);
+            assertTrue(solver.isLastReadingValid(), "aligned reading at " + time + " s was rejected");
+            assertEquals(0.0, errorTeeth(solved, velocity * time), 1e-9);
+
+            double unaligned = solver.solve(rotationsA, rotationsB);
+            if (solver.isLastReadingValid() && Math.abs(errorTeeth(unaligned, velocity * time)) > 1.0) {
+                unalignedWrong++;
+            }
+        }
+
+        // The 7 ms skew is 0.84 teeth of travel, which rounds to the wrong residue difference without alignment
+        assertEquals(500, unalignedWrong);
+    }
+
+    @Test
+    void extrapolatesByVelocity() {
+        assertEquals(1.25, CRTSolver.extrapolate(1.0, 5.0, 10.0, 10.05), 1e-12);
+        assertEquals(1.0, CRTSolver.extrapolate(1.0, 5.0, 10.0, 10.0), 1e-12);
+    }
+
+    @Test
+    void rejectsInvalidConfigurations() {
+        assertThrows(IllegalArgumentException.class, () -> new CRTSolver(18, 20, MEASURED_TEETH));
+        assertThrows(IllegalArgumentException.class, () -> new CRTSolver(0, B_TEETH, MEASURED_TEETH));
+        assertThrows(IllegalArgumentException.class, () -> new CRTSolver(A_TEETH, B_TEETH, -1));
+
+        assertThrows(IllegalArgumentException.class, () -> solver.setToleranceTeeth(0.0));
+        assertThrows(IllegalArgumentException.class, () -> solver.setToleranceTeeth(0.5));
+        assertThrows(IllegalArgumentException.class, () -> solver.setToleranceTeeth(Double.NaN));
+    }
+}
@@ -0,0 +1,117 @@
+package frc.robot.lib.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.lib.util.PIDConfiguration;
+
+class ControllerBankTest {
+
+    private static final PIDConfiguration PID_CONFIG = new PIDConfiguration(4.0, 1.0, 0.0, 2.0, 6.0);
+
+    @Test
+    void disabledAxisIsNotStepped() {
+        double[] sent = {Double.NaN};
+        ControllerBank bank = new ControllerBank(0.02);
+        int axis = bank.registerAxis(PID_CONFIG, 0.0, value -> sent[0] = value);
+
+        bank.setGoal(axis, 1.0);
+        bank.setEnabled(axis, false);
+        for (int i = 0; i < 50; i++) {
+            bank.step();
+        }
+        bank.close();
+
+        assertTrue(Double.isNaN(sent[0]), "a disabled axis must not drive its sink");
+        assertEquals(0.0, bank.getSetpointPosition(axis), 1e-12);
+        assertEquals(0.0, bank.getOutput(axis), 1e-12);
+    }
+
+    @Test
+    void enablingAgainResetsOnTheMeasurement() {
+        ControllerBank bank = new ControllerBank(0.02);
+        int axis = bank.registerAxis(PID_CONFIG, 0.0, null);
+
+        // Build up integral and profile state, then let the mechanism be moved by hand while disabled
+        bank.setGoal(axis, 1.0);
+        for (int i = 0; i < 25; i++) {
+            bank.step();
+        }
+        bank.setEnabled(axis, false);
+        bank.setMeasurement(axis, 0.3);
+        bank.setEnabled(axis, true);
+
+        assertEquals(0.3, bank.getSetpointPosition(axis), 1e-12);
+        assertEquals(0.0, bank.getSetpointVelocity(axis), 1e-12);
+
+        // The first step only moves one acceleration-limited step from rest, without a carried integral
+        bank.step();
+        double firstTravel = 0.5 * PID_CONFIG.maxAcc * 0.02 * 0.02;
+        assertEquals(0.3 + firstTravel, bank.getSetpointPosition(axis), 1e-9);
+        double expected = PID_CONFIG.kP * firstTravel + PID_CONFIG.kI * firstTravel * 0.02;
+        assertEquals(expected, bank.getOutput(axis), 1e-9);
+    }
+
+    @Test
+    void goalReversedBehindTheSetpointIsReachedWithoutAJump() {
+        ControllerBank bank = new ControllerBank(0.02);
+        int axis = bank.registerAxis(PID_CONFIG, 0.0, null);
+
+        bank.setGoal(axis, 1.0);
+        for (int i = 0; i < 15; i++) {
+            bank.step();
+        }
+        double position = bank.getSetpointPosition(axis);
+        double velocity = bank.getSetpointVelocity(axis);
+        assertTrue(velocity > 0.5);
+
+        // The new goal is just behind the setpoint, which is still moving away from it
+        double goal = position - 0.01;
+        bank.setGoal(axis, goal);
+        for (int i = 0; i < 200; i++) {
+            bank.step();
+            double nextPosition = bank.getSetpointPosition(axis);
+            double nextVelocity = bank.getSetpointVelocity(axis);
+            assertTrue(Math.abs(nextVelocity - velocity) <= PID_CONFIG.maxAcc * 0.02 + 1e-9, "velocity jumped on step " + i);
+            assertTrue(Math.abs(nextPosition - position) <= PID_CONFIG.maxVel * 0.02 + 1e-9, "position jumped on step " + i);
+            position = nextPosition;
+            velocity = nextVelocity;
+        }
+
+        assertEquals(goal, position, 1e-12);
+        assertEquals(0.0, velocity, 1e-12);
+    }
+
+    @Test
+    void outputsReachTheSinksAfterTheStep() {
+        double[] sent = new double[2];
+        ControllerBank bank = new ControllerBank(0.02);
+        int first = bank.registerAxis(PID_CONFIG, 0.0, value -> sent[0] = value);
+        int second = bank.registerAxis(PID_CONFIG, 0.0, value -> sent[1] = value);
+
+        bank.setGoal(first, 1.0);
+        bank.setGoal(second, -1.0);
+        bank.step();
+
+        assertEquals(bank.getOutput(first), sent[0], 0.0);
+        assertEquals(bank.getOutput(second), sent[1], 0.0);
+        assertTrue(sent[0] > 0 && sent[1] < 0);
+        bank.close();
+    }
+
+    @Test
+    void closedBankIsNoLongerSteppedByTheRobotLoop() {
+        int[] calls = {0};
+        ControllerBank bank = new ControllerBank(0.02);
+        bank.registerAxis(PID_CONFIG, 0.0, value -> calls[0]++);
+
+        ControllerBank.stepAll();
+        assertEquals(1, calls[0]);
+
+        bank.close();
+        ControllerBank.stepAll();
+        assertEquals(1, calls[0]);
+    }
+}
@@ -0,0 +1,86 @@
+package frc.robot.lib.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.lib.util.FFConfiguration;
+import frc.robot.lib.util.GainSchedule;
+import frc.robot.lib.util.PIDConfiguration;
+
+class PIDFFControllerTest {
+
+    private static final double PERIOD = 0.02;
+    private static final double PLANT_KV = 1.0;
+    private static final double PLANT_KA = 0.1;
+
+    @Test
+    void tracksGoalOnSimulatedPlant() {
+        PIDFFController controller = new PIDFFController(5.0, 0.0, 0.0, 0.0, PLANT_KV, PLANT_KA, 2.0, 4.0);
+        controller.setTolerance(0.01, 0.05);
+        controller.reset(0.0, 0.0);
+
+        // A motor with voltage = kV * velocity + kA * acceleration, integrated in 1 ms steps
+        double position = 0.0;
+        double velocity = 0.0;
+        double maxPosition = 0.0;
+        for (int i = 0; i < 150; i++) {
+            double voltage = controller.calculate(position, 1.0);
+            for (int j = 0; j < 20; j++) {
+                double acceleration = (voltage - PLANT_KV * velocity) / PLANT_KA;
+                velocity += acceleration * 0.001;
+                position += velocity * 0.001;
+            }
+            maxPosition = Math.max(maxPosition, position);
+        }
+
+        assertEquals(1.0, position, 0.005);
+        assertTrue(maxPosition < 1.01, "overshot to " + maxPosition);
+        assertTrue(controller.atSetpoint());
+    }
+
+    @Test
+    void stepsProfileOncePerCalculate() {
+        // With only kV the output is the profile's setpoint velocity, which grows by maxAccel * period per step
+        PIDFFController controller = new PIDFFController(0.0, 0.0, 0.0, 0.0, 1.0, 0.0, 2.0, 4.0);
+        controller.reset(0.0, 0.0);
+
+        assertEquals(0.08, controller.calculate(0.0, 1.0), 1e-9);
+        assertEquals(0.16, controller.calculate(0.0), 1e-9);
+        assertEquals(0.24, controller.calculate(0.0, 1.0), 1e-9);
+    }
+
+    @Test
+    void recordsComputeTime() {
+        PIDFFController controller = new PIDFFController(1.0, 0.0, 0.0, 2.0, 4.0);
+        assertEquals(0.0, controller.getLastComputeTime());
+
+        controller.calculate(0.0, 1.0);
+        assertTrue(controller.getLastComputeTime() > 0);
+    }
+
+    @Test
+    void clearingGainScheduleRestoresConfiguredGains() {
+        PIDFFController reference = new PIDFFController(2.0, 0.5, 0.1, 0.2, PLANT_KV, PLANT_KA, 2.0, 4.0);
+        PIDFFController scheduled = new PIDFFController(2.0, 0.5, 0.1, 0.2, PLANT_KV, PLANT_KA, 2.0, 4.0);
+
+        GainSchedule schedule = new GainSchedule(
+            GainSchedule.Variable.EXTERNAL,
+            new double[] {0.0},
+            new PIDConfiguration[] {new PIDConfiguration(10.0, 0.0, 0.0, 2.0, 4.0)},
+            new FFConfiguration[] {new FFConfiguration(0.0, 3.0, 0.0)});
+        scheduled.setGainSchedule(schedule);
+        for (int i = 0; i < 10; i++) {
+            scheduled.calculate(0.1 * i, 1.0);
+        }
+        scheduled.setGainSchedule(null);
+
+        reference.reset(0.0, 0.0);
+        scheduled.reset(0.0, 0.0);
+        for (int i = 0; i < 25; i++) {
+            double measurement = 0.03 * i;
+            assertEquals(reference.calculate(measurement, 1.0), scheduled.calculate(measurement, 1.0), 1e-12);
+        }
+    }
+}
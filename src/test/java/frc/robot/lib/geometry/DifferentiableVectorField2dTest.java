@@ -0,0 +1,118 @@
+package frc.robot.lib.geometry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.lib.geometry.DifferentiableVectorField2d.DifferenceMode;
+
+class DifferentiableVectorField2dTest {
+
+    /** A plain field whose cross derivatives differ, so a swapped dVx/dy and dVy/dx shows up */
+    private static final VectorField2d PLAIN = (x, y) -> new Vector2d(x * y * y, Math.sin(x) + y);
+
+    private static final DifferentiableVectorField2d ANALYTIC = new DifferentiableVectorField2d() {
+        @Override
+        public Vector2d computeVector(double x, double y) {
+            return PLAIN.computeVector(x, y);
+        }
+
+        @Override
+        public Jacobian2d computeJacobian(double x, double y, Jacobian2d result) {
+            return result.set(x * y * y, Math.sin(x) + y, y * y, 2 * x * y, Math.cos(x), 1.0);
+        }
+    };
+
+    private static final double[][] POINTS = {{0.3, -1.2}, {1.7, 0.4}, {-2.1, 2.5}, {0.0, 0.0}};
+
+    /** Checks a field's Jacobian against central differences of its own computeVector */
+    private static void assertMatchesDifferences(DifferentiableVectorField2d field, double tolerance) {
+        double step = 1e-5;
+        Jacobian2d jacobian = new Jacobian2d();
+        for (double[] point : POINTS) {
+            double x = point[0];
+            double y = point[1];
+            field.computeJacobian(x, y, jacobian);
+
+            Vector2d value = field.computeVector(x, y);
+            Vector2d xPlus = field.computeVector(x + step, y);
+            Vector2d xMinus = field.computeVector(x - step, y);
+            Vector2d yPlus = field.computeVector(x, y + step);
+            Vector2d yMinus = field.computeVector(x, y - step);
+
+            String at = " at (" + x + ", " + y + ")";
+            assertEquals(value.getX(), jacobian.getX(), 1e-12, "Vx" + at);
+            assertEquals(value.getY(), jacobian.getY(), 1e-12, "Vy" + at);
+            assertEquals((xPlus.getX() - xMinus.getX()) / (2 * step), jacobian.getDVxDx(), tolerance, "dVx/dx" + at);
+            assertEquals((yPlus.getX() - yMinus.getX()) / (2 * step), jacobian.getDVxDy(), tolerance, "dVx/dy" + at);
+            assertEquals((xPlus.getY() - xMinus.getY()) / (2 * step), jacobian.getDVyDx(), tolerance, "dVy/dx" + at);
+            assertEquals((yPlus.getY() - yMinus.getY()) / (2 * step), jacobian.getDVyDy(), tolerance, "dVy/dy" + at);
+        }
+    }
+
+    @Test
+    void analyticJacobiansOfTheFactoriesMatchDifferences() {
+        DifferentiableVectorField2d toPoint = DifferentiableVectorField2d.getFieldToPoint(1.0, -2.0);
+        DifferentiableVectorField2d sum = DifferentiableVectorField2d.addFields(ANALYTIC, toPoint);
+
+        assertMatchesDifferences(ANALYTIC, 1e-7);
+        assertMatchesDifferences(toPoint, 1e-7);
+        assertMatchesDifferences(DifferentiableVectorField2d.getConstantField(3.0, -1.0), 1e-7);
+        assertMatchesDifferences(sum, 1e-7);
+        assertMatchesDifferences(DifferentiableVectorField2d.scaleField(sum, 2.5), 1e-7);
+        assertMatchesDifferences(DifferentiableVectorField2d.invertField(sum), 1e-7);
+    }
+
+    @Test
+    void finiteDifferenceWrappersMatchTheAnalyticJacobian() {
+        DifferentiableVectorField2d central = DifferentiableVectorField2d.fromField(PLAIN, DifferenceMode.CENTRAL);
+        DifferentiableVectorField2d forward = DifferentiableVectorField2d.fromField(PLAIN, DifferenceMode.FORWARD);
+        Jacobian2d expected = new Jacobian2d();
+        Jacobian2d centralJacobian = new Jacobian2d();
+        Jacobian2d forwardJacobian = new Jacobian2d();
+
+        for (double[] point : POINTS) {
+            ANALYTIC.computeJacobian(point[0], point[1], expected);
+            central.computeJacobian(point[0], point[1], centralJacobian);
+            forward.computeJacobian(point[0], point[1], forwardJacobian);
+
+            // Central differences are second order in the 1e-4 step, forward differences first order
+            assertJacobianEquals(expected, centralJacobian, 1e-7);
+            assertJacobianEquals(expected, forwardJacobian, 1e-3);
+        }
+    }
+
+    @Test
+    void wrappingADifferentiableFieldKeepsIt() {
+        assertSame(ANALYTIC, DifferentiableVectorField2d.fromField(ANALYTIC, DifferenceMode.FORWARD));
+    }
+
+    @Test
+    void vectorFieldDerivativesUseTheJacobian() {
+        for (double[] point : POINTS) {
+            double x = point[0];
+            double y = point[1];
+            double divergence = y * y + 1.0;
+            double curl = Math.cos(x) - 2 * x * y;
+
+            assertEquals(divergence, VectorField2d.getDivergence(ANALYTIC).computeVector(x, y).getX(), 1e-12);
+            assertEquals(curl, VectorField2d.getCurl(ANALYTIC).computeVector(x, y).getY(), 1e-12);
+            assertEquals(y * y, VectorField2d.getGradient(ANALYTIC).computeVector(x, y).getX(), 1e-12);
+            assertEquals(1.0, VectorField2d.getGradient(ANALYTIC).computeVector(x, y).getY(), 1e-12);
+
+            // The plain field still goes through VectorField2d's own forward differences
+            assertEquals(divergence, VectorField2d.getDivergence(PLAIN).computeVector(x, y).getX(), 1e-3);
+            assertEquals(curl, VectorField2d.getCurl(PLAIN).computeVector(x, y).getY(), 1e-3);
+        }
+    }
+
+    private static void assertJacobianEquals(Jacobian2d expected, Jacobian2d actual, double tolerance) {
+        assertEquals(expected.getX(), actual.getX(), 1e-12);
+        assertEquals(expected.getY(), actual.getY(), 1e-12);
+        assertEquals(expected.getDVxDx(), actual.getDVxDx(), tolerance);
+        assertEquals(expected.getDVxDy(), actual.getDVxDy(), tolerance);
+        assertEquals(expected.getDVyDx(), actual.getDVyDx(), tolerance);
+        assertEquals(expected.getDVyDy(), actual.getDVyDy(), tolerance);
+    }
+}
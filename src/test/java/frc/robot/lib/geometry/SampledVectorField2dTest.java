@@ -0,0 +1,147 @@
+package frc.robot.lib.geometry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SampledVectorField2dTest {
+
+    /** A plain field, so the sampled derivatives come from differencing the grid */
+    private static final VectorField2d LINEAR = (x, y) -> new Vector2d(1.0 + 2.0 * x + 3.0 * y, -4.0 + 0.5 * x - y);
+
+    private static final VectorField2d WAVE = (x, y) -> new Vector2d(Math.sin(x) * Math.cos(y), x * x * y);
+
+    @Test
+    void linearFieldIsReproducedExactly() {
+        // The spacing does not divide the extents, so the grid spacing is adjusted
+        SampledVectorField2d sampled = new SampledVectorField2d(LINEAR, -1.0, -2.0, 3.0, 2.0, 0.3, false);
+        Random random = new Random(9);
+        MutableVector2d value = new MutableVector2d();
+        Jacobian2d jacobian = new Jacobian2d();
+
+        for (int i = 0; i < 1000; i++) {
+            double x = -1.0 + 4.0 * random.nextDouble();
+            double y = -2.0 + 4.0 * random.nextDouble();
+            Vector2d expected = LINEAR.computeVector(x, y);
+
+            assertEquals(expected.getX(), sampled.getX(x, y), 1e-12);
+            assertEquals(expected.getY(), sampled.getY(x, y), 1e-12);
+            sampled.computeVector(x, y, value);
+            assertEquals(expected.getX(), value.getX(), 1e-12);
+            assertEquals(expected.getY(), value.getY(), 1e-12);
+
+            // Differences of a linear field are exact, including the one sided ones on the edges
+            sampled.computeJacobian(x, y, jacobian);
+            assertEquals(2.0, jacobian.getDVxDx(), 1e-9);
+            assertEquals(3.0, jacobian.getDVxDy(), 1e-9);
+            assertEquals(0.5, jacobian.getDVyDx(), 1e-9);
+            assertEquals(-1.0, jacobian.getDVyDy(), 1e-9);
+            assertEquals(1.0, sampled.getDivergence(x, y), 1e-9);
+            assertEquals(-2.5, sampled.getCurl(x, y), 1e-9);
+        }
+    }
+
+    @Test
+    void pointsOutsideTheGridAreClampedToItsEdges() {
+        SampledVectorField2d sampled = new SampledVectorField2d(LINEAR, -1.0, -2.0, 3.0, 2.0, 0.3, false);
+
+        // The far corners land on the last cell rather than past the end of the grid
+        assertEquals(LINEAR.computeVector(3.0, 2.0).getX(), sampled.getX(3.0, 2.0), 1e-12);
+        assertEquals(LINEAR.computeVector(3.0, 2.0).getX(), sampled.getX(10.0, 7.0), 1e-12);
+        assertEquals(LINEAR.computeVector(-1.0, -2.0).getY(), sampled.getY(-5.0, -9.0), 1e-12);
+        assertEquals(LINEAR.computeVector(3.0, 0.5).getX(), sampled.getX(4.0, 0.5), 1e-12);
+        assertEquals(LINEAR.computeVector(0.5, -2.0).getY(), sampled.getY(0.5, -3.0), 1e-12);
+    }
+
+    @Test
+    void derivativeGridsMatchAnalyticValues() {
+        double spacing = 0.01;
+        SampledVectorField2d sampled = new SampledVectorField2d(WAVE, 0.0, 0.0, 2.0, 1.0, spacing, false);
+        Jacobian2d jacobian = new Jacobian2d();
+
+        // Central differences inside the grid are second order
+        for (double x = 0.1; x < 1.9; x += 0.137) {
+            for (double y = 0.1; y < 0.9; y += 0.113) {
+                sampled.computeJacobian(x, y, jacobian);
+                assertJacobian(x, y, jacobian, 1e-3);
+            }
+        }
+
+        // One sided differences on the edges are first order, off by about half a cell
+        for (double x = 0.1; x < 1.9; x += 0.137) {
+            sampled.computeJacobian(x, 0.0, jacobian);
+            assertJacobian(x, 0.0, jacobian, spacing * 2);
+            sampled.computeJacobian(x, 1.0, jacobian);
+            assertJacobian(x, 1.0, jacobian, spacing * 2);
+        }
+        for (double y = 0.1; y < 0.9; y += 0.113) {
+            sampled.computeJacobian(0.0, y, jacobian);
+            assertJacobian(0.0, y, jacobian, spacing * 2);
+            sampled.computeJacobian(2.0, y, jacobian);
+            assertJacobian(2.0, y, jacobian, spacing * 2);
+        }
+    }
+
+    private static void assertJacobian(double x, double y, Jacobian2d jacobian, double tolerance) {
+        String point = " at (" + x + ", " + y + ")";
+        assertEquals(Math.cos(x) * Math.cos(y), jacobian.getDVxDx(), tolerance, "dVx/dx" + point);
+        assertEquals(-Math.sin(x) * Math.sin(y), jacobian.getDVxDy(), tolerance, "dVx/dy" + point);
+        assertEquals(2 * x * y, jacobian.getDVyDx(), tolerance, "dVy/dx" + point);
+        assertEquals(x * x, jacobian.getDVyDy(), tolerance, "dVy/dy" + point);
+    }
+
+    @Test
+    void differentiableSourceUsesItsJacobian() {
+        DifferentiableVectorField2d source = DifferentiableVectorField2d.addFields(
+            DifferentiableVectorField2d.getFieldToPoint(1.0, 2.0),
+            DifferentiableVectorField2d.fromField(WAVE, DifferentiableVectorField2d.DifferenceMode.CENTRAL));
+        SampledVectorField2d sampled = new SampledVectorField2d(source, 0.0, 0.0, 2.0, 1.0, 0.01, false);
+        Jacobian2d jacobian = new Jacobian2d();
+
+        // Grid points hold the exact Jacobian, even on the edges
+        sampled.computeJacobian(0.0, 0.0, jacobian);
+        assertEquals(1.0 - 1.0, jacobian.getDVxDx(), 1e-6);
+        assertEquals(0.0 - 1.0, jacobian.getDVyDy(), 1e-6);
+        sampled.computeJacobian(2.0, 1.0, jacobian);
+        assertEquals(Math.cos(2.0) * Math.cos(1.0) - 1.0, jacobian.getDVxDx(), 1e-6);
+        assertEquals(-Math.sin(2.0) * Math.sin(1.0), jacobian.getDVxDy(), 1e-6);
+        assertEquals(4.0, jacobian.getDVyDx(), 1e-6);
+        assertEquals(4.0 - 1.0, jacobian.getDVyDy(), 1e-6);
+    }
+
+    @Test
+    void parallelSamplingMatchesSerial() {
+        DifferentiableVectorField2d differentiable = DifferentiableVectorField2d.scaleField(
+            DifferentiableVectorField2d.fromField(WAVE, DifferentiableVectorField2d.DifferenceMode.CENTRAL), 2.0);
+        VectorField2d[] fields = {WAVE, differentiable};
+
+        for (VectorField2d field : fields) {
+            SampledVectorField2d serial = new SampledVectorField2d(field, -1.0, -1.0, 1.0, 1.0, 0.02, false);
+            SampledVectorField2d parallel = new SampledVectorField2d(field, -1.0, -1.0, 1.0, 1.0, 0.02, true);
+            Jacobian2d serialJacobian = new Jacobian2d();
+            Jacobian2d parallelJacobian = new Jacobian2d();
+
+            for (double x = -1.0; x <= 1.0; x += 0.0173) {
+                for (double y = -1.0; y <= 1.0; y += 0.0191) {
+                    serial.computeJacobian(x, y, serialJacobian);
+                    parallel.computeJacobian(x, y, parallelJacobian);
+                    assertEquals(serialJacobian.getX(), parallelJacobian.getX(), 0.0);
+                    assertEquals(serialJacobian.getY(), parallelJacobian.getY(), 0.0);
+                    assertEquals(serialJacobian.getDVxDx(), parallelJacobian.getDVxDx(), 0.0);
+                    assertEquals(serialJacobian.getDVxDy(), parallelJacobian.getDVxDy(), 0.0);
+                    assertEquals(serialJacobian.getDVyDx(), parallelJacobian.getDVyDx(), 0.0);
+                    assertEquals(serialJacobian.getDVyDy(), parallelJacobian.getDVyDy(), 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsInvalidGrids() {
+        assertThrows(IllegalArgumentException.class, () -> new SampledVectorField2d(LINEAR, 1.0, 0.0, 1.0, 1.0, 0.1, false));
+        assertThrows(IllegalArgumentException.class, () -> new SampledVectorField2d(LINEAR, 0.0, 0.0, 1.0, 1.0, 0.0, false));
+    }
+}
@@ -0,0 +1,102 @@
+package frc.robot.lib.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PolynomialRegressionTest {
+
+    @Test
+    void recoversCubic() {
+        int n = 20;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = -2.0 + 0.25 * i;
+            y[i] = 1.0 - 2.0 * x[i] + 0.5 * x[i] * x[i] + 0.25 * x[i] * x[i] * x[i];
+        }
+
+        PolynomialRegression regression = new PolynomialRegression(x, y, 3);
+        double[] coefficients = regression.getCoefficients();
+
+        assertEquals(1.0, coefficients[0], 1e-9);
+        assertEquals(-2.0, coefficients[1], 1e-9);
+        assertEquals(0.5, coefficients[2], 1e-9);
+        assertEquals(0.25, coefficients[3], 1e-9);
+        assertEquals(1.0, regression.getRSquared(), 1e-12);
+    }
+
+    @Test
+    void clusteredLargeXIsMoreAccurateThanClosedForm() {
+        int n = 50;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = 1e6 + 0.01 * i;
+            y[i] = 0.5 * (x[i] - 1e6) + 3.0;
+        }
+
+        PolynomialRegression regression = new PolynomialRegression(x, y, 1);
+        double[] closedForm = RegressionTest.closedFormLinearFit(x, y);
+        double probe = 1e6 + 0.2;
+        double error = Math.abs(regression.predict(probe) - 3.1);
+        double closedFormError = Math.abs(closedForm[0] * probe + closedForm[1] - 3.1);
+
+        assertTrue(error < 1e-6, "prediction error " + error);
+        assertTrue(closedFormError > 100 * error, "closed form error " + closedFormError + " against " + error);
+    }
+
+    @Test
+    void quadraticAroundFiveMeters() {
+        // Shot calibration distances clustered around 5 m
+        int n = 15;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = 4.9 + 0.015 * i;
+            y[i] = 30.0 + 4.0 * (x[i] - 5.0) - 1.5 * (x[i] - 5.0) * (x[i] - 5.0);
+        }
+
+        PolynomialRegression regression = new PolynomialRegression(x, y, 2);
+        assertEquals(30.0 + 4.0 * 0.05 - 1.5 * 0.05 * 0.05, regression.predict(5.05), 1e-10);
+    }
+
+    @Test
+    void weightsActLikeRepeatedPoints() {
+        double[] x = {0.0, 1.0, 2.0, 3.0, 4.0};
+        double[] y = {1.0, 1.8, 4.2, 8.9, 17.1};
+        double[] weights = {2.0, 1.0, 1.0, 3.0, 1.0};
+        double[] repeatedX = {0.0, 0.0, 1.0, 2.0, 3.0, 3.0, 3.0, 4.0};
+        double[] repeatedY = {1.0, 1.0, 1.8, 4.2, 8.9, 8.9, 8.9, 17.1};
+
+        PolynomialRegression weighted = new PolynomialRegression(x, y, weights, 2);
+        PolynomialRegression repeated = new PolynomialRegression(repeatedX, repeatedY, 2);
+
+        for (double probe = 0.0; probe <= 4.0; probe += 0.5) {
+            assertEquals(repeated.predict(probe), weighted.predict(probe), 1e-10);
+        }
+    }
+
+    @Test
+    void incrementalPointsMatchBatchFit() {
+        double[] x = {0.5, 1.0, 1.5, 2.0, 2.5, 3.0};
+        double[] y = {0.3, 1.1, 2.4, 3.9, 6.4, 8.8};
+
+        PolynomialRegression batch = new PolynomialRegression(x, y, 2);
+        PolynomialRegression incremental = new PolynomialRegression(2);
+        for (int i = 0; i < x.length; i++) {
+            incremental.addPoint(x[i], y[i]);
+        }
+
+        assertEquals(batch.predict(1.75), incremental.predict(1.75), 1e-12);
+    }
+
+    @Test
+    void rejectsInvalidData() {
+        assertThrows(IllegalArgumentException.class, () -> new PolynomialRegression(-1));
+        assertThrows(IllegalArgumentException.class, () -> new PolynomialRegression(new double[] {1.0}, new double[] {1.0, 2.0}, 1));
+        assertThrows(IllegalArgumentException.class, () -> new PolynomialRegression(2).addPoint(1.0, 1.0, -1.0));
+    }
+}
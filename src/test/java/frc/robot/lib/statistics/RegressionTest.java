@@ -0,0 +1,114 @@
+package frc.robot.lib.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.lib.statistics.Regression.RegressionType;
+
+class RegressionTest {
+
+    /** The sum based closed form Regression used before it kept running co-moments */
+    static double[] closedFormLinearFit(double[] xData, double[] yData) {
+        int n = xData.length;
+        double sumX = 0, sumY = 0, sumXY = 0, sumX2 = 0;
+        for (int i = 0; i < n; i++) {
+            sumX += xData[i];
+            sumY += yData[i];
+            sumXY += xData[i] * yData[i];
+            sumX2 += xData[i] * xData[i];
+        }
+        double slope = (n * sumXY - sumX * sumY) / (n * sumX2 - sumX * sumX);
+        double intercept = (sumY - slope * sumX) / n;
+        return new double[] {slope, intercept};
+    }
+
+    @Test
+    void clusteredLargeXIsMoreAccurateThanClosedForm() {
+        // Encoder positions far from zero with a small spread
+        int n = 50;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = 1e6 + 0.01 * i;
+            y[i] = 0.5 * (x[i] - 1e6) + 3.0;
+        }
+
+        Regression regression = new Regression(x, y, RegressionType.LINEAR);
+        double slopeError = Math.abs(regression.getSlope() - 0.5);
+        double closedFormSlopeError = Math.abs(closedFormLinearFit(x, y)[0] - 0.5);
+
+        assertTrue(slopeError < 1e-6, "slope error " + slopeError);
+        assertTrue(closedFormSlopeError > 100 * slopeError,
+            "closed form slope error " + closedFormSlopeError + " against " + slopeError);
+        assertEquals(3.0 + 0.5 * 0.2, regression.predict(1e6 + 0.2), 1e-6);
+    }
+
+    @Test
+    void matchesClosedFormOnWellConditionedData() {
+        double[] x = {1.0, 2.0, 3.0, 4.5, 6.0};
+        double[] y = {2.1, 3.9, 6.2, 8.8, 12.1};
+
+        Regression regression = new Regression(x, y, RegressionType.LINEAR);
+        double[] closedForm = closedFormLinearFit(x, y);
+
+        assertEquals(closedForm[0], regression.getSlope(), 1e-12);
+        assertEquals(closedForm[1], regression.getIntercept(), 1e-12);
+    }
+
+    @Test
+    void recoversTransformedForms() {
+        double[] x = {1.0, 2.0, 3.0, 4.0, 5.0};
+        double[] exponential = new double[x.length];
+        double[] power = new double[x.length];
+        double[] logarithmic = new double[x.length];
+        for (int i = 0; i < x.length; i++) {
+            exponential[i] = 2.0 * Math.exp(0.3 * x[i]);
+            power[i] = 1.5 * Math.pow(x[i], 1.7);
+            logarithmic[i] = 4.0 + 0.8 * Math.log(x[i]);
+        }
+
+        assertEquals(2.0 * Math.exp(0.3 * 2.5), new Regression(x, exponential, RegressionType.EXPONENTIAL).predict(2.5), 1e-9);
+        assertEquals(1.5 * Math.pow(2.5, 1.7), new Regression(x, power, RegressionType.POWER).predict(2.5), 1e-9);
+        assertEquals(4.0 + 0.8 * Math.log(2.5), new Regression(x, logarithmic, RegressionType.LOGARITHMIC).predict(2.5), 1e-9);
+    }
+
+    @Test
+    void weightsActLikeRepeatedPoints() {
+        double[] x = {1.0, 2.0, 3.0, 4.0};
+        double[] y = {1.2, 1.9, 3.3, 3.8};
+        double[] weights = {1.0, 3.0, 1.0, 2.0};
+        double[] repeatedX = {1.0, 2.0, 2.0, 2.0, 3.0, 4.0, 4.0};
+        double[] repeatedY = {1.2, 1.9, 1.9, 1.9, 3.3, 3.8, 3.8};
+
+        Regression weighted = new Regression(x, y, weights, RegressionType.LINEAR);
+        Regression repeated = new Regression(repeatedX, repeatedY, RegressionType.LINEAR);
+
+        assertEquals(repeated.getSlope(), weighted.getSlope(), 1e-12);
+        assertEquals(repeated.getIntercept(), weighted.getIntercept(), 1e-12);
+    }
+
+    @Test
+    void needsTwoDistinctPoints() {
+        Regression regression = new Regression(RegressionType.LINEAR);
+        regression.addPoint(1.0, 2.0);
+        assertFalse(regression.isFitted());
+        regression.addPoint(1.0, 3.0);
+        assertFalse(regression.isFitted());
+        regression.addPoint(2.0, 4.0);
+        assertTrue(regression.isFitted());
+    }
+
+    @Test
+    void rejectsInvalidData() {
+        Regression regression = new Regression(RegressionType.POWER);
+        assertThrows(IllegalArgumentException.class, () -> regression.addPoint(1.0, 1.0, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> regression.addPoint(-1.0, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> regression.addPoint(1.0, 0.0));
+        assertThrows(IllegalArgumentException.class,
+            () -> new Regression(new double[] {1.0, 2.0}, new double[] {1.0}, RegressionType.LINEAR));
+    }
+}
@@ -0,0 +1,99 @@
+package frc.robot.lib.subsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.hardware.TalonFX;
+
+import edu.wpi.first.hal.HAL;
+
+class CanBusBudgetTest {
+
+    /** Bus utilization of one frame per second, at 150 bits per frame on a 1 Mbit/s bus */
+    private static final double UTILIZATION_PER_HZ = 150.0 / 1_000_000;
+
+    private final List<TalonFX> motors = new ArrayList<>();
+    private CanBusBudget budget;
+
+    @BeforeEach
+    void setup() {
+        HAL.initialize(500, 0);
+        // A fresh budget so the tests do not share demands through the singleton
+        budget = new CanBusBudget();
+    }
+
+    @AfterEach
+    void teardown() {
+        for (TalonFX motor : motors) {
+            motor.close();
+        }
+    }
+
+    private TalonFX createMotor(int id) {
+        TalonFX motor = new TalonFX(id);
+        motors.add(motor);
+        budget.registerDevice(motor);
+        return motor;
+    }
+
+    @Test
+    void signalsRunAtTheFastestConsumerRate() {
+        TalonFX motor = createMotor(50);
+        BaseStatusSignal position = motor.getPosition();
+        BaseStatusSignal velocity = motor.getVelocity();
+
+        budget.requireSignals("Arm/Control", 100, position, velocity);
+        budget.requireSignals("Arm/Logging", 250, position);
+        assertEquals(250, budget.getRequiredFrequency(position), 1e-9);
+        assertEquals(100, budget.getRequiredFrequency(velocity), 1e-9);
+        assertEquals(350 * UTILIZATION_PER_HZ, budget.getProjectedUtilization(), 1e-12);
+
+        // Declaring again replaces the consumer's rate, a rate of 0 withdraws it
+        budget.requireSignals("Arm/Logging", 50, position);
+        assertEquals(100, budget.getRequiredFrequency(position), 1e-9);
+        budget.requireSignals("Arm/Control", 0, position, velocity);
+        assertEquals(50, budget.getRequiredFrequency(position), 1e-9);
+        assertEquals(0, budget.getRequiredFrequency(velocity), 1e-9);
+        assertEquals(50 * UTILIZATION_PER_HZ, budget.getProjectedUtilization(), 1e-12);
+    }
+
+    @Test
+    void budgetIsExceededAsDevicesAreAdded() {
+        budget.optimize();
+        assertTrue(budget.isWithinBudget());
+
+        // Four signals at 250 Hz are 15% of the bus per motor, so the fifth motor goes over the 70% default
+        for (int i = 0; i < 5; i++) {
+            TalonFX motor = createMotor(51 + i);
+            budget.requireSignals("Motor " + i, 250,
+                motor.getPosition(), motor.getVelocity(), motor.getMotorVoltage(), motor.getStatorCurrent());
+
+            double expected = (i + 1) * 4 * 250 * UTILIZATION_PER_HZ;
+            assertEquals(expected, budget.getProjectedUtilization(), 1e-12);
+            assertEquals(expected <= CanBusBudget.DEFAULT_BUDGET, budget.isWithinBudget(), "after " + (i + 1) + " motors");
+        }
+        assertFalse(budget.isWithinBudget());
+
+        budget.setBudget(0.8);
+        assertTrue(budget.isWithinBudget());
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        TalonFX motor = createMotor(56);
+
+        assertThrows(IllegalArgumentException.class, () -> budget.requireSignals("Arm", -1, motor.getPosition()));
+        assertThrows(IllegalArgumentException.class, () -> budget.setBudget(0));
+        assertThrows(IllegalArgumentException.class, () -> budget.setBudget(1.5));
+    }
+}
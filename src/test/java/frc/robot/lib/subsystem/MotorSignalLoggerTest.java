@@ -0,0 +1,84 @@
+package frc.robot.lib.subsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.hardware.TalonFX;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.lib.subsystem.MotorSignalLogger.SignalGroup;
+
+class MotorSignalLoggerTest {
+
+    private static final int CYCLES = 2000;
+
+    @Test
+    void groupsAreDueAtTheirPeriods() {
+        MotorSignalLogger logger = new MotorSignalLogger("Test");
+        logger.setGroupPeriod(SignalGroup.ELECTRICAL, 5);
+
+        for (int cycle = 0; cycle < 20; cycle++) {
+            logger.log();
+            assertTrue(logger.isGroupDue(SignalGroup.MOTION));
+            assertEquals(cycle % 5 == 0, logger.isGroupDue(SignalGroup.ELECTRICAL), "cycle " + cycle);
+        }
+    }
+
+    @Test
+    void updateFrequencyFollowsThePeriod() {
+        assertEquals(50.0, MotorSignalLogger.getUpdateFrequency(1), 1e-9);
+        assertEquals(10.0, MotorSignalLogger.getUpdateFrequency(5), 1e-9);
+        assertEquals(4.0, MotorSignalLogger.getUpdateFrequency(50), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> new MotorSignalLogger("Test").setGroupPeriod(SignalGroup.MOTION, 0));
+    }
+
+    @Test
+    void logAllocatesNothingBeyondThePhoenixCalls() {
+        HAL.initialize(500, 0);
+        TalonFX motor = new TalonFX(45);
+        try {
+            MotorSignalLogger logger = new MotorSignalLogger("Test");
+            logger.addMotor(motor, "Motor");
+            BaseStatusSignal[] signals = {
+                motor.getPosition(), motor.getVelocity(), motor.getMotorVoltage(), motor.getStatorCurrent(), motor.getDutyCycle()
+            };
+
+            // The same Phoenix calls log() makes, so only the logger's own allocations are left in the difference
+            Runnable phoenixOnly = () -> {
+                BaseStatusSignal.refreshAll(signals);
+                for (BaseStatusSignal signal : signals) {
+                    signal.getValueAsDouble();
+                }
+                signals[0].getStatus();
+                motor.isAlive();
+            };
+
+            measureAllocatedBytes(logger::log);
+            measureAllocatedBytes(phoenixOnly);
+            long loggerBytes = measureAllocatedBytes(logger::log);
+            long phoenixBytes = measureAllocatedBytes(phoenixOnly);
+
+            // Building the log keys each cycle would cost hundreds of bytes per call
+            double bytesPerCall = (double) (loggerBytes - phoenixBytes) / CYCLES;
+            assertTrue(bytesPerCall < 16, "log() allocated " + bytesPerCall + " bytes per call beyond Phoenix");
+        } finally {
+            motor.close();
+        }
+    }
+
+    private static long measureAllocatedBytes(Runnable action) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < CYCLES; i++) {
+            action.run();
+        }
+        return threads.getThreadAllocatedBytes(threadId) - start;
+    }
+}
@@ -0,0 +1,106 @@
+package frc.robot.lib.subsystem;
+
+import static edu.wpi.first.units.Units.Rotations;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.lib.statistics.LogLinearHistogram;
+import frc.robot.lib.subsystem.ImprovedSubsystemBase.ProfileSection;
+import frc.robot.lib.util.FFConfiguration;
+import frc.robot.lib.util.PIDConfiguration;
+
+class MotorSimTest {
+
+    private static final double PERIOD = MotorSubsystem.DEFAULT_CONTROL_PERIOD;
+    private static final PIDConfiguration PID_CONFIG = new PIDConfiguration(1.5, 0.0, 0.05, 2.0, 4.0);
+    /** Roughly a free spinning Kraken X60, about 100 rotations per second at 12 V */
+    private static final FFConfiguration FF_CONFIG = new FFConfiguration(0.0, 0.12, 0.0);
+    private static final double SETTLE_TOLERANCE = 0.02;
+
+    private ServoSubsystem servo;
+
+    @BeforeEach
+    void setup() {
+        HAL.initialize(500, 0);
+        DriverStationSim.setEnabled(true);
+        DriverStationSim.notifyNewData();
+
+        servo = new ServoSubsystem("TestServo", PID_CONFIG, 40, new TalonFXConfiguration(), Rotations.of(0));
+        servo.simulateDCMotor(DCMotor.getKrakenX60(1), 0.002, 1.0);
+    }
+
+    @AfterEach
+    void teardown() {
+        servo.motor.close();
+    }
+
+    @Test
+    void servoReachesItsTargetThroughThePlant() {
+        servo.setTargetPosition(Rotations.of(1.0));
+
+        MotorSim.runHeadless(150 * PERIOD, PERIOD, servo);
+
+        assertEquals(1.0, servo.getSimulation().getMechanismPositionRotations(), 0.05);
+        assertEquals(1.0, servo.getCurrentPosition().in(Rotations), 0.05);
+    }
+
+    @Test
+    void headlessRunsResumeTiming() {
+        SimHooks.resumeTiming();
+        MotorSim.runHeadless(0.1, PERIOD, servo);
+        assertFalse(SimHooks.isTimingPaused());
+    }
+
+    @Test
+    void onboardAndRioLoopsSettleAndReportTheirControlCost() {
+        ServoSubsystem onboard = new ServoSubsystem("OnboardServo", PID_CONFIG, FF_CONFIG, 41,
+            new TalonFXConfiguration(), Rotations.of(0));
+        try {
+            onboard.simulateDCMotor(DCMotor.getKrakenX60(1), 0.002, 1.0);
+            servo.setProfilePublishPeriod(Integer.MAX_VALUE);
+            onboard.setProfilePublishPeriod(Integer.MAX_VALUE);
+            servo.setTargetPosition(Rotations.of(1.0));
+            onboard.setTargetPosition(Rotations.of(1.0));
+
+            // Both run side by side on the same cycles, each remembering when it last left the tolerance
+            double rioSettleTime = 0;
+            double onboardSettleTime = 0;
+            int cycles = 150;
+            for (int cycle = 1; cycle <= cycles; cycle++) {
+                MotorSim.runHeadless(PERIOD, PERIOD, servo, onboard);
+                if (Math.abs(servo.getSimulation().getMechanismPositionRotations() - 1.0) > SETTLE_TOLERANCE) {
+                    rioSettleTime = cycle * PERIOD;
+                }
+                if (Math.abs(onboard.getSimulation().getMechanismPositionRotations() - 1.0) > SETTLE_TOLERANCE) {
+                    onboardSettleTime = cycle * PERIOD;
+                }
+            }
+
+            LogLinearHistogram rioControl = servo.getProfileHistogram(ProfileSection.CONTROL);
+            LogLinearHistogram onboardControl = onboard.getProfileHistogram(ProfileSection.CONTROL);
+            System.out.printf("roboRIO PID: settled in %.2f s, control p50 %.1f us, p99 %.1f us%n", rioSettleTime,
+                rioControl.getValueAtPercentile(50) * 1e-3, rioControl.getValueAtPercentile(99) * 1e-3);
+            System.out.printf("Motion Magic: settled in %.2f s, control p50 %.1f us, p99 %.1f us%n", onboardSettleTime,
+                onboardControl.getValueAtPercentile(50) * 1e-3, onboardControl.getValueAtPercentile(99) * 1e-3);
+
+            // The 1 rotation move takes 1 s of profile at these constraints, so both must settle well before the end
+            assertTrue(rioSettleTime < 2.0, "roboRIO PID settled after " + rioSettleTime + " s");
+            assertTrue(onboardSettleTime < 2.0, "Motion Magic settled after " + onboardSettleTime + " s");
+            assertEquals(cycles, rioControl.getCount());
+            assertEquals(cycles, onboardControl.getCount());
+        } finally {
+            onboard.motor.close();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package frc.robot.lib.subsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.ctre.phoenix6.configs.MotionMagicConfigs;
+import com.ctre.phoenix6.configs.Slot0Configs;
+
+import frc.robot.lib.util.FFConfiguration;
+import frc.robot.lib.util.PIDConfiguration;
+
+class ServoSubsystemTest {
+
+    private static final PIDConfiguration PID_CONFIG = new PIDConfiguration(2.0, 0.1, 0.05, 1.5, 4.0);
+    private static final FFConfiguration FF_CONFIG = new FFConfiguration(0.25, 1.8, 0.02);
+
+    @Test
+    void slotGainsRunInVolts() {
+        Slot0Configs slot = ServoSubsystem.createSlotConfig(PID_CONFIG, FF_CONFIG);
+
+        // Duty cycle PID gains are scaled to volts, so the onboard loop responds like the roboRIO one
+        assertEquals(PID_CONFIG.kP * ServoSubsystem.NOMINAL_VOLTAGE, slot.kP, 1e-12);
+        assertEquals(PID_CONFIG.kI * ServoSubsystem.NOMINAL_VOLTAGE, slot.kI, 1e-12);
+        assertEquals(PID_CONFIG.kD * ServoSubsystem.NOMINAL_VOLTAGE, slot.kD, 1e-12);
+
+        // Feedforward gains are already volts, as RollerSubsystem and PIDFFController use them
+        assertEquals(FF_CONFIG.kS, slot.kS, 1e-12);
+        assertEquals(FF_CONFIG.kV, slot.kV, 1e-12);
+        assertEquals(FF_CONFIG.kA, slot.kA, 1e-12);
+    }
+
+    @Test
+    void motionMagicUsesTheProfileConstraints() {
+        MotionMagicConfigs motionMagic = ServoSubsystem.createMotionMagicConfig(PID_CONFIG);
+
+        assertEquals(PID_CONFIG.maxVel, motionMagic.MotionMagicCruiseVelocity, 1e-12);
+        assertEquals(PID_CONFIG.maxAcc, motionMagic.MotionMagicAcceleration, 1e-12);
+    }
+}
@@ -0,0 +1,53 @@
+package frc.robot.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.lib.util.GenericState.Shift;
+
+class MatchTimelineTest {
+
+    @Test
+    void findsTheShiftAtEachBoundary() {
+        assertEquals(Shift.AUTO, MatchTimeline.getShift(true, false, 15.0));
+        assertEquals(Shift.NOT_DEFINED, MatchTimeline.getShift(false, false, 15.0));
+
+        assertEquals(Shift.TRANSITION_SHIFT, MatchTimeline.getShift(false, true, 140.0));
+        assertEquals(Shift.TRANSITION_SHIFT, MatchTimeline.getShift(false, true, 130.0));
+        assertEquals(Shift.SHIFT_ONE, MatchTimeline.getShift(false, true, 129.99));
+        assertEquals(Shift.SHIFT_TWO, MatchTimeline.getShift(false, true, 80.0));
+        assertEquals(Shift.SHIFT_THREE, MatchTimeline.getShift(false, true, 79.99));
+        assertEquals(Shift.SHIFT_FOUR, MatchTimeline.getShift(false, true, 30.0));
+        assertEquals(Shift.ENDGAME, MatchTimeline.getShift(false, true, 29.99));
+        assertEquals(Shift.ENDGAME, MatchTimeline.getShift(false, true, 0.0));
+    }
+
+    @Test
+    void boundariesMatchTheShifts() {
+        assertEquals(5, MatchTimeline.getTeleopBoundaryCount());
+        for (int boundary = 0; boundary < MatchTimeline.getTeleopBoundaryCount(); boundary++) {
+            Shift before = MatchTimeline.getShiftBeforeBoundary(boundary);
+            Shift after = MatchTimeline.getShiftAfterBoundary(boundary);
+            assertEquals(before.getEndTimeSeconds(), MatchTimeline.getTeleopBoundarySeconds(boundary));
+            assertEquals(after.getStartTimeSeconds(), MatchTimeline.getTeleopBoundarySeconds(boundary));
+        }
+    }
+
+    @Test
+    void hubActivityFollowsTheGameData() {
+        // Red is inactive first: red is active in shifts 2 and 4, blue in shifts 1 and 3
+        assertFalse(MatchTimeline.isHubActive(Shift.SHIFT_ONE, true, "R"));
+        assertTrue(MatchTimeline.isHubActive(Shift.SHIFT_TWO, true, "R"));
+        assertTrue(MatchTimeline.isHubActive(Shift.SHIFT_ONE, false, "R"));
+        assertFalse(MatchTimeline.isHubActive(Shift.SHIFT_FOUR, false, "R"));
+        assertTrue(MatchTimeline.isHubActive(Shift.SHIFT_THREE, true, "B"));
+
+        assertTrue(MatchTimeline.isHubActive(Shift.TRANSITION_SHIFT, true, ""));
+        assertTrue(MatchTimeline.isHubActive(Shift.ENDGAME, false, ""));
+        assertFalse(MatchTimeline.isHubActive(Shift.SHIFT_TWO, true, ""));
+        assertFalse(MatchTimeline.isHubScheduleKnown("X"));
+    }
+}
@@ -0,0 +1,134 @@
+package frc.robot.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.lib.util.GenericState.Shift;
+
+class ShiftSchedulerTest {
+
+    private static final double PERIOD = 0.02;
+
+    private final ShiftScheduler scheduler = new ShiftScheduler();
+
+    /** Steps the scheduler through teleop with a fake match clock counting down from {@code startSeconds} */
+    private void runTeleop(double startSeconds, boolean redAlliance, String gameData) {
+        int cycles = (int) Math.round(startSeconds / PERIOD);
+        for (int i = 0; i <= cycles; i++) {
+            scheduler.update(startSeconds - i * PERIOD, true, redAlliance, gameData);
+        }
+    }
+
+    /** @return an action that records the match time of the cycle it ran on */
+    private static Runnable recordTime(List<Double> times, double[] clock) {
+        return () -> times.add(clock[0]);
+    }
+
+    @Test
+    void hubActiveLeadFiresOncePerChange() {
+        List<Double> fired = new ArrayList<>();
+        double[] clock = {0};
+        scheduler.runBeforeHubActive(1.5, recordTime(fired, clock));
+
+        // The red hub is inactive first, so it becomes active at the start of shift 2 and shift 4
+        for (int i = 0; i <= 7000; i++) {
+            clock[0] = 140.0 - i * PERIOD;
+            scheduler.update(clock[0], true, true, "R");
+        }
+
+        assertEquals(2, fired.size(), "fired at " + fired);
+        assertFiredAt(Shift.SHIFT_TWO.getStartTimeSeconds() + 1.5, fired.get(0));
+        assertFiredAt(Shift.SHIFT_FOUR.getStartTimeSeconds() + 1.5, fired.get(1));
+    }
+
+    @Test
+    void hubInactiveLeadFollowsTheAlliance() {
+        List<Double> fired = new ArrayList<>();
+        double[] clock = {0};
+        scheduler.runBeforeHubInactive(1.0, recordTime(fired, clock));
+
+        // The blue hub is active in shift 1 and 3 when red is inactive first
+        for (int i = 0; i <= 7000; i++) {
+            clock[0] = 140.0 - i * PERIOD;
+            scheduler.update(clock[0], true, false, "R");
+        }
+
+        assertEquals(2, fired.size(), "fired at " + fired);
+        assertFiredAt(Shift.SHIFT_TWO.getStartTimeSeconds() + 1.0, fired.get(0));
+        assertFiredAt(Shift.SHIFT_FOUR.getStartTimeSeconds() + 1.0, fired.get(1));
+    }
+
+    @Test
+    void shiftActionsRunWithoutGameData() {
+        int[] shiftRuns = {0};
+        int[] hubRuns = {0};
+        scheduler.runBeforeShift(Shift.SHIFT_TWO, 2.0, () -> shiftRuns[0]++);
+        scheduler.runBeforeShift(Shift.ENDGAME, 0.0, () -> shiftRuns[0]++);
+        scheduler.runBeforeHubActive(1.5, () -> hubRuns[0]++);
+        scheduler.runBeforeHubInactive(1.5, () -> hubRuns[0]++);
+
+        runTeleop(140.0, true, "");
+
+        assertEquals(2, shiftRuns[0]);
+        assertEquals(0, hubRuns[0], "hub actions must wait for the game data");
+    }
+
+    @Test
+    void changesAlreadyWithinTheLeadAreNotRunLate() {
+        int[] runs = {0};
+        scheduler.runBeforeShift(Shift.SHIFT_TWO, 1.5, () -> runs[0]++);
+
+        // Teleop starts with less than the lead left before shift 2
+        runTeleop(106.0, true, "R");
+        assertEquals(0, runs[0]);
+    }
+
+    @Test
+    void nothingRunsOutsideTeleop() {
+        int[] runs = {0};
+        scheduler.runBeforeShift(Shift.SHIFT_ONE, 0.5, () -> runs[0]++);
+
+        for (int i = 0; i <= 7000; i++) {
+            scheduler.update(140.0 - i * PERIOD, false, true, "R");
+        }
+        assertEquals(0, runs[0]);
+
+        // Time standing still or going back up does not run anything either
+        scheduler.update(131.0, true, true, "R");
+        scheduler.update(131.0, true, true, "R");
+        scheduler.update(135.0, true, true, "R");
+        assertEquals(0, runs[0]);
+    }
+
+    @Test
+    void clearRemovesActions() {
+        int[] runs = {0};
+        scheduler.runBeforeShift(Shift.SHIFT_ONE, 0.5, () -> runs[0]++);
+        scheduler.clear();
+
+        runTeleop(140.0, true, "R");
+        assertEquals(0, runs[0]);
+    }
+
+    @Test
+    void rejectsInvalidSchedules() {
+        assertThrows(IllegalArgumentException.class, () -> scheduler.runBeforeShift(Shift.AUTO, 1.0, () -> {}));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.runBeforeShift(Shift.TRANSITION_SHIFT, 1.0, () -> {}));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.runBeforeShift(Shift.NOT_DEFINED, 1.0, () -> {}));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.runBeforeShift(Shift.SHIFT_ONE, -0.5, () -> {}));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.runBeforeHubActive(-1.0, () -> {}));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.runBeforeHubInactive(Double.NaN, () -> {}));
+    }
+
+    private static void assertFiredAt(double expectedSeconds, double firedSeconds) {
+        // The action runs on the first cycle at or past its time
+        assertTrue(firedSeconds <= expectedSeconds + 1e-9 && firedSeconds > expectedSeconds - PERIOD,
+            "expected to fire at " + expectedSeconds + " s, fired at " + firedSeconds + " s");
+    }
+}